@@ -0,0 +1,157 @@
+package com.project.library_management_system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+// the filters of the derived queries on the flyway schema ("seek") and on the same schema with its
+// secondary indexes dropped ("scan", the schema before V1), 10^6 books and loans.
+// the plan of every query is printed at setup: -Djmh.args="SchemaIndexBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaIndexBenchmark {
+
+    static final int AUTHORS = 1000;
+    static final int USERS = 10_000;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"scan", "seek"})
+    public String schema;
+
+    private SingleConnectionDataSource dataSource;
+    private int calls;
+    private PreparedStatement booksByAuthor;
+    private PreparedStatement booksByTitle;
+    private PreparedStatement availableBooksByAuthor;
+    private PreparedStatement activeLoansOfUser;
+    private PreparedStatement usersByName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:jmh-schema-" + schema + ";DB_CLOSE_DELAY=-1", true);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        Connection connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (schema.equals("scan")) {
+                statement.execute("alter table loan drop constraint fk_loan_book");
+                statement.execute("alter table loan drop constraint fk_loan_user");
+                for (String index : new String[]{"ix_book_title", "ix_book_author", "ix_book_available_author",
+                        "ix_users_name", "ix_loan_returned_user", "ix_loan_user", "ix_loan_book"}) {
+                    statement.execute("drop index " + index);
+                }
+            }
+            seed(statement, rows);
+        }
+
+        booksByAuthor = plan(connection, "select * from book where author = ?", "Author 500");
+        booksByTitle = plan(connection, "select * from book where title = ?", "Title 1");
+        availableBooksByAuthor = plan(connection, "select * from book where available = true and author = ?", "Author 500");
+        activeLoansOfUser = plan(connection, "select * from loan where returned = false and user_id = ?", 1000000L);
+        usersByName = plan(connection, "select * from users where name = ?", "User 1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = dataSource.getConnection().createStatement()) {
+            statement.execute("shutdown");
+        }
+        dataSource.destroy();
+    }
+
+    // set based inserts inside h2, ids start high so they never meet the seeded V2 rows
+    static void seed(Statement statement, int rows) throws SQLException {
+        statement.execute("insert into book(id, title, author, isbn, available) "
+                + "select x + 1000000, 'Title ' || x, 'Author ' || mod(x, " + AUTHORS + "), 'isbn-' || x, mod(x, 100) <> 0 "
+                + "from system_range(0, " + (rows - 1) + ")");
+        statement.execute("insert into users(id, name, email, password, role, approved) "
+                + "select x + 1000000, 'User ' || x, 'user' || x || '@example.com', 'x', 'USER', true "
+                + "from system_range(0, " + (USERS - 1) + ")");
+        statement.execute("insert into loan(book_id, user_id, loan_date, returned) "
+                + "select x + 1000000, mod(x, " + USERS + ") + 1000000, current_date, mod(x, 10) <> 0 "
+                + "from system_range(0, " + (rows - 1) + ")");
+        statement.execute("analyze");
+    }
+
+    private static PreparedStatement plan(Connection connection, String sql, Object parameter) throws SQLException {
+        try (PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+            explain.setObject(1, parameter);
+            try (ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                System.out.println(plan.getString(1).replaceAll("\\s+", " "));
+            }
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    //a different value on every call: h2 hands back the previous result when a query is repeated unchanged
+    private int next(int bound) {
+        calls = (calls + 7919) % bound;
+        return calls;
+    }
+
+    private static int count(PreparedStatement query, Object parameter) throws SQLException {
+        query.setObject(1, parameter);
+        int rows = 0;
+        try (ResultSet result = query.executeQuery()) {
+            while (result.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    // ~rows/1000 matches
+    @Benchmark
+    public int booksByAuthor() throws SQLException {
+        return count(booksByAuthor, "Author " + next(AUTHORS));
+    }
+
+    // single match
+    @Benchmark
+    public int booksByTitle() throws SQLException {
+        return count(booksByTitle, "Title " + next(rows));
+    }
+
+    // 99% of an author's books are available
+    @Benchmark
+    public int availableBooksByAuthor() throws SQLException {
+        return count(availableBooksByAuthor, "Author " + next(AUTHORS));
+    }
+
+    // ~rows/100000 active loans per user
+    @Benchmark
+    public int activeLoansOfUser() throws SQLException {
+        return count(activeLoansOfUser, 1000000L + next(USERS));
+    }
+
+    @Benchmark
+    public int usersByName() throws SQLException {
+        return count(usersByName, "User " + next(USERS));
+    }
+}
@@ -0,0 +1,88 @@
+package com.project.library_management_system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.library_management_system.book.BookView;
+import com.project.library_management_system.loan.LoanView;
+
+// what a list endpoint costs per format, with and without the gzip tomcat adds on top.
+// the payload sizes are printed once per trial, the time is jackson (+ deflate) only
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<BookView> books;
+    private List<LoanView> loans;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {   //same builders as the mvc converters
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        books = new ArrayList<>(size);
+        loans = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            books.add(new BookView((long) i, "Title " + i, "Author " + (i % 100), "isbn-" + i, i % 2 == 0));
+            LocalDate loanDate = LocalDate.of(2025, 1, 1).plusDays(i % 365);
+            loans.add(new LoanView((long) i, loanDate, loanDate.plusDays(14), null, false,
+                    (long) i, 1L, "patron@example.com"));
+        }
+        System.out.printf("%n%s gzip=%s: books %d bytes, loans %d bytes%n", format, gzip,
+                serializeBooks().length, serializeLoans().length);
+    }
+
+    @Benchmark
+    public byte[] serializeBooks() throws IOException {
+        return write(books);
+    }
+
+    @Benchmark
+    public byte[] serializeLoans() throws IOException {
+        return write(loans);
+    }
+
+    private byte[] write(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            objectMapper.writeValue(out, value);
+        }
+        return bytes.toByteArray();
+    }
+}
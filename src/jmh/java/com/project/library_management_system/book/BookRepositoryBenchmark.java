@@ -0,0 +1,94 @@
+package com.project.library_management_system.book;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.project.library_management_system.LibraryManagementSystemApplication;
+
+// derived queries of BookRepository against a seeded in-memory H2.
+// 10^6 rows: -Djmh.args="BookRepositoryBenchmark -p rows=1000000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookRepositoryBenchmark {
+
+    static final int AUTHORS = 1000;
+
+    @Param({"100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(LibraryManagementSystemApplication.class)
+                .properties(
+                        "server.port=0",   //the security config needs the servlet context
+                        "spring.datasource.url=jdbc:h2:mem:jmh-books;DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+        seed(context.getBean(JdbcTemplate.class), rows);
+        bookRepository = context.getBean(BookRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // ~rows/1000 matches
+    @Benchmark
+    public List<Book> findAllByAuthor() {
+        return bookRepository.findAllByAuthor("Author 500");
+    }
+
+    // single match
+    @Benchmark
+    public List<Book> findAllByTitle() {
+        return bookRepository.findAllByTitle("Title " + (rows / 2));
+    }
+
+    // 1% of the rows are on loan
+    @Benchmark
+    public List<Book> findAllByAvailable() {
+        return bookRepository.findAllByAvailable(false);
+    }
+
+
+    // plain jdbc batches, going through jpa would make the setup slower than the benchmark.
+    // ids are explicit and start high so they never meet the rows seeded by the V2 migration
+    static void seed(JdbcTemplate jdbcTemplate, int rows) {
+        int batch = 10_000;
+        for (int start = 0; start < rows; start += batch) {
+            int from = start;
+            int to = Math.min(rows, start + batch);
+            jdbcTemplate.batchUpdate("insert into book(id, title, author, isbn, available) values (?, ?, ?, ?, ?)",
+                    java.util.stream.IntStream.range(from, to)
+                        .mapToObj(i -> new Object[]{ 1_000_000L + i, "Title " + i, "Author " + (i % AUTHORS), "isbn-" + i, i % 100 != 0 })
+                        .toList());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.project.library_management_system.loan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.user.Role;
+import com.project.library_management_system.user.User;
+
+// what the list endpoints spend in jackson, loans include the computed bookId/userId properties
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Book> books;
+    private List<Loan> loans;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();  //same defaults as the mvc converter
+        books = new ArrayList<>(size);
+        loans = new ArrayList<>(size);
+
+        User user = new User(1L, "Patron", "patron@example.com", "hash", Role.USER, true, null);
+        for (int i = 0; i < size; i++) {
+            Book book = new Book((long) i, "Title " + i, "Author " + (i % 100), "isbn-" + i, i % 2 == 0, null);
+            books.add(book);
+            loans.add(new Loan((long) i, book, user, LocalDate.of(2025, 1, 1).plusDays(i % 365), null, false));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeBooks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] serializeLoans() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loans);
+    }
+}
@@ -0,0 +1,97 @@
+package com.project.library_management_system.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+
+import com.nimbusds.jose.JWSAlgorithm;
+
+
+// the per-request (jwt decode) and per-login (jwt encode, bcrypt) costs of the security layer
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityBenchmark {
+
+    private JwtEncoder encoder;
+    private JwtDecoder decoder;
+    private CachingJwtDecoder cachingDecoder;
+    private JwtEncoderParameters parameters;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        // same key setup as SecurityConfig without a keystore, JwtSigningBenchmark compares the algorithms
+        JwtSigningKeys keys = JwtSigningKeys.generate(JWSAlgorithm.RS256);
+        encoder = keys.encoder();
+        decoder = keys.decoder();
+        parameters = JwtEncoderParameters.from(JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .subject("admin@example.com")
+                .claim("scope", "ROLE_ADMIN")
+                .build());
+        token = encoder.encode(parameters).getTokenValue();
+        cachingDecoder = new CachingJwtDecoder(decoder, Duration.ofMinutes(30), 10_000);
+    }
+
+    @Benchmark
+    public String jwtEncode() {
+        return encoder.encode(parameters).getTokenValue();
+    }
+
+    @Benchmark
+    public Jwt jwtDecode() {
+        return decoder.decode(token);
+    }
+
+    // what a request with an already seen token costs: digest + cache lookup
+    @Benchmark
+    public Jwt jwtDecodeCached() {
+        return cachingDecoder.decode(token);
+    }
+
+    @Benchmark
+    public boolean bcryptMatches(Passwords passwords) {
+        return passwords.bcrypt.matches("password123", passwords.hash);
+    }
+
+    // the cost parameter lives in its own state, so only bcryptMatches runs once per cost
+    @State(Scope.Benchmark)
+    public static class Passwords {
+
+        @Param({"10", "12"})
+        public int bcryptCost;
+
+        BCryptPasswordEncoder bcrypt;
+        String hash;
+
+        @Setup
+        public void setUp() {
+            bcrypt = new BCryptPasswordEncoder(bcryptCost);
+            hash = bcrypt.encode("password123");
+        }
+    }
+}
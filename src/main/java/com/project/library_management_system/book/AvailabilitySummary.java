@@ -0,0 +1,7 @@
+package com.project.library_management_system.book;
+
+
+
+public record AvailabilitySummary(long total, long available, long onLoan) {
+
+}
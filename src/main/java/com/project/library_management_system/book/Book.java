@@ -1,5 +1,10 @@
 package com.project.library_management_system.book;
 
+import java.util.List;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.project.library_management_system.loan.Loan;
 
@@ -8,9 +13,18 @@ import jakarta.validation.constraints.NotNull;
 
 
 @Entity
+@Table(indexes = {   //created by the V1 migration, listed here so the mapping documents them
+    @Index(name = "ix_book_title", columnList = "title"),
+    @Index(name = "ix_book_author", columnList = "author"),
+    @Index(name = "ix_book_available_author", columnList = "available, author")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")   //second-level cache, the loans collection is not cached
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //sequence with a pooled optimizer: hibernate reserves 50 ids per round trip and can batch the inserts,
+    //which IDENTITY prevents because every insert has to run on its own to read the generated key back
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
     private String title;
     private String author;
@@ -19,23 +33,23 @@ public class Book {
     @NotNull
     private boolean available = true;
 
-    @OneToOne(mappedBy = "book", cascade = CascadeType.ALL)//cascasdeType.All means whatever happens with it will happend with loan
+    @OneToMany(mappedBy = "book", cascade = CascadeType.ALL)//cascasdeType.All means whatever happens with it will happend with loans
     @JsonIgnore
-    private Loan loan;  //this column will not be here
-                        // you are saying that it will be handled by the Loan.book
-                        //there will be book_id column in the loand
+    private List<Loan> loans;   //this column will not be here
+                                // you are saying that it will be handled by the Loan.book
+                                //there will be book_id column in the loan, one per checkout over time
 
     public Book(){
         
     }
 
-    public Book(Long id, String title, String author, String isbn, boolean available, Loan loan) {
+    public Book(Long id, String title, String author, String isbn, boolean available, List<Loan> loans) {
         this.id = id;
         this.title = title;
         this.author = author;
         this.isbn = isbn;
         this.available = available;
-        this.loan = loan;
+        this.loans = loans;
     }
 
     public Long getId() {
@@ -78,12 +92,12 @@ public class Book {
         this.available = available;
     }
 
-    public Loan getLoan() {
-        return loan;
+    public List<Loan> getLoans() {
+        return loans;
     }
 
-    public void setLoan(Loan loan) {
-        this.loan = loan;
+    public void setLoans(List<Loan> loans) {
+        this.loans = loans;
     }
 
     
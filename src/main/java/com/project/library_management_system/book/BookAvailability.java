@@ -0,0 +1,232 @@
+package com.project.library_management_system.book;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// availability of the catalog kept in memory: a bit per book id for "exists" and for "available",
+// plus running counters, so the dashboards polling it never touch the book table.
+// follows BookChangedEvent after commit and is checked against the table by reconcile().
+// first built while the context starts, before the web server answers from it. a change that commits during
+// that scan is applied again on top of the scanned table, so the older snapshot never overwrites it
+@Component
+public class BookAvailability implements MeterBinder, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(BookAvailability.class);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private BitSet present = new BitSet();     //indexed by book id, ids are sequence values well inside int range
+    private BitSet available = new BitSet();
+    private int total;
+    private int availableCount;
+    private long version;                      //bumped by every applied change
+    private final AtomicLong drifts = new AtomicLong();
+    private List<BookChangedEvent> duringLoad;   //changes applied while load() scans the table, null otherwise
+
+    private BookRepository bookRepository;
+    private TransactionTemplate readOnlyTransaction;
+
+    public BookAvailability(BookRepository bookRepository, PlatformTransactionManager transactionManager){
+        this.bookRepository=bookRepository;
+        this.readOnlyTransaction=new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated(){
+        load();
+    }
+
+    public void load(){
+        lock.writeLock().lock();
+        try{
+            duringLoad = new ArrayList<>();
+        }finally{
+            lock.writeLock().unlock();
+        }
+
+        Snapshot snapshot;
+        try{
+            snapshot = readTable();
+        }catch(RuntimeException e){
+            stopRecording();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try{
+            List<BookChangedEvent> changes = duringLoad;
+            duringLoad = null;
+            replaceLocked(snapshot);
+            changes.forEach(this::applyLocked);   //whether the scan saw them or not, the latest state of a book wins
+        }finally{
+            lock.writeLock().unlock();
+        }
+        log.info("Book availability loaded: {}", summary());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event){
+        lock.writeLock().lock();
+        try{
+            applyLocked(event);
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event){
+        lock.writeLock().lock();
+        try{
+            event.books().forEach(this::applyLocked);
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    public AvailabilitySummary summary(){
+        lock.readLock().lock();
+        try{
+            return new AvailabilitySummary(total, availableCount, total - availableCount);
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    // ids of available (or on loan) books greater than after, in ascending order
+    public List<Long> ids(boolean wantAvailable, long after, int limit){
+        List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try{
+            int from = (int) Math.min(Math.max(after + 1, 0), Integer.MAX_VALUE);
+            BitSet scan = wantAvailable ? available : present;
+            for(int id = scan.nextSetBit(from); id >= 0 && ids.size() < limit; id = scan.nextSetBit(id + 1)){
+                if(wantAvailable || !available.get(id)){
+                    ids.add((long) id);
+                }
+            }
+        }finally{
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    // re-reads the table and replaces the projection if it drifted (an update that bypassed the events,
+    // e.g. sql run by hand). a scan that overlaps a change is thrown away, the next run checks again
+    @Scheduled(fixedDelayString = "${books.availability.reconcile-interval:5m}",
+               initialDelayString = "${books.availability.reconcile-interval:5m}")
+    public void reconcile(){
+        long versionBefore;
+        lock.readLock().lock();
+        try{
+            versionBefore = version;
+        }finally{
+            lock.readLock().unlock();
+        }
+
+        Snapshot table = readTable();
+
+        lock.writeLock().lock();
+        try{
+            if(version != versionBefore){
+                log.debug("Book availability reconciliation skipped, books changed during the scan");
+                return;
+            }
+            if(!table.present().equals(present) || !table.available().equals(available)){
+                log.warn("Book availability drifted from the book table (memory {} / {} available, table {} / {} available), rebuilt",
+                        total, availableCount, table.present().cardinality(), table.available().cardinality());
+                drifts.incrementAndGet();
+                replaceLocked(table);
+            }
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("books.total", this, availability -> availability.summary().total()).register(registry);
+        Gauge.builder("books.available", this, availability -> availability.summary().available()).register(registry);
+        Gauge.builder("books.on.loan", this, availability -> availability.summary().onLoan()).register(registry);
+        Gauge.builder("books.availability.drifts", drifts, AtomicLong::get)
+                .description("reconciliation runs that found the projection out of sync with the table")
+                .register(registry);
+    }
+
+
+    private void applyLocked(BookChangedEvent event){
+        int id = Math.toIntExact(event.id());
+        boolean wasPresent = present.get(id);
+        boolean wasAvailable = available.get(id);
+        boolean isPresent = !event.deleted();
+        boolean isAvailable = isPresent && event.available();
+
+        if(wasPresent != isPresent){
+            present.set(id, isPresent);
+            total += isPresent ? 1 : -1;
+        }
+        if(wasAvailable != isAvailable){
+            available.set(id, isAvailable);
+            availableCount += isAvailable ? 1 : -1;
+        }
+        version++;
+        if(duringLoad != null){
+            duringLoad.add(event);
+        }
+    }
+
+    private void stopRecording(){
+        lock.writeLock().lock();
+        try{
+            duringLoad = null;
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replaceLocked(Snapshot snapshot){
+        present = snapshot.present();
+        available = snapshot.available();
+        total = present.cardinality();
+        availableCount = available.cardinality();
+        version++;
+    }
+
+    private Snapshot readTable(){
+        return readOnlyTransaction.execute(status -> {
+            BitSet present = new BitSet();
+            BitSet available = new BitSet();
+            try(Stream<BookView> books = bookRepository.streamAll()){
+                books.forEach(book -> {
+                    int id = Math.toIntExact(book.id());
+                    present.set(id);
+                    if(book.available()){
+                        available.set(id);
+                    }
+                });
+            }
+            return new Snapshot(present, available);
+        });
+    }
+
+    private record Snapshot(BitSet present, BitSet available) {
+
+    }
+}
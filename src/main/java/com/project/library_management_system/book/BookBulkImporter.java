@@ -0,0 +1,309 @@
+package com.project.library_management_system.book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.library_management_system.exception.BadRequestException;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+// imports a catalog in one request: rows are read and validated one at a time from the request body,
+// valid ones are inserted batch-size at a time, each batch in its own transaction and jdbc batch.
+// a bad row only fails itself, a batch the database rejects fails its rows, the rest of the import goes on
+@Service
+public class BookBulkImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(BookBulkImporter.class);
+
+    //a record is buffered whole, an unterminated quote must not pull the rest of the upload into memory
+    static final int MAX_CSV_RECORD = 64 * 1024;
+
+    private EntityManager entityManager;
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+    private int batchSize;
+    private int maxReportedErrors;
+
+    public BookBulkImporter(EntityManager entityManager, ObjectMapper objectMapper, Validator validator,
+                            ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                            @Value("${books.import.batch-size:1000}") int batchSize,
+                            @Value("${books.import.max-reported-errors:1000}") int maxReportedErrors){
+        this.entityManager=entityManager;
+        this.objectMapper=objectMapper;
+        this.validator=validator;
+        this.eventPublisher=eventPublisher;
+        this.transactionTemplate=new TransactionTemplate(transactionManager);
+        this.batchSize=Math.max(batchSize, 1);
+        this.maxReportedErrors=maxReportedErrors;
+    }
+
+    // [{"title": "...", "author": "...", "isbn": "...", "available": true}, ...]
+    public BulkImportReport importJson(InputStream in) throws IOException {
+        Run run = new Run();
+        try(JsonParser parser = objectMapper.getFactory().createParser(in)){
+            if(parser.nextToken() != JsonToken.START_ARRAY){
+                throw new BadRequestException("Expected a JSON array of books");
+            }
+            JsonToken token;
+            while((token = nextToken(parser, run)) != null && token != JsonToken.END_ARRAY){
+                int row = run.nextRow();
+                JsonNode node;
+                try{
+                    node = parser.readValueAsTree();
+                }catch(JsonProcessingException e){
+                    run.reject(row, "Malformed JSON, import stopped: " + e.getOriginalMessage());
+                    break;
+                }
+                try{
+                    run.accept(row, objectMapper.treeToValue(node, Book.class));
+                }catch(JsonProcessingException e){
+                    run.reject(row, e.getOriginalMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    // first line is the header, columns by name: title, author, isbn, available (optional, defaults to true)
+    public BulkImportReport importCsv(InputStream in) throws IOException {
+        Run run = new Run();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        String header = readCsvRecord(reader);
+        if(header == null){
+            throw new BadRequestException("CSV header is missing");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        for(int i = 0; i < names.size(); i++){
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if(!columns.containsKey("title") || !columns.containsKey("author")){
+            throw new BadRequestException("CSV header must contain title and author columns");
+        }
+
+        String record;
+        while((record = readCsvRecord(reader)) != null){
+            if(record.isBlank()){
+                continue;
+            }
+            int row = run.nextRow();
+            if(record.length() > MAX_CSV_RECORD){
+                run.reject(row, "Record longer than " + MAX_CSV_RECORD + " characters, import stopped (unterminated quote?)");
+                break;
+            }
+            try{
+                List<String> fields = splitCsvLine(record);
+                Book book = new Book();
+                book.setTitle(column(fields, columns, "title"));
+                book.setAuthor(column(fields, columns, "author"));
+                book.setIsbn(column(fields, columns, "isbn"));
+                String available = column(fields, columns, "available");
+                if(available != null){
+                    if(!available.equalsIgnoreCase("true") && !available.equalsIgnoreCase("false")){
+                        throw new IllegalArgumentException("available must be true or false");
+                    }
+                    book.setAvailable(Boolean.parseBoolean(available));
+                }
+                run.accept(row, book);
+            }catch(IllegalArgumentException e){
+                run.reject(row, e.getMessage());
+            }
+        }
+        return run.finish();
+    }
+
+
+    private JsonToken nextToken(JsonParser parser, Run run) throws IOException {
+        try{
+            return parser.nextToken();
+        }catch(JsonProcessingException e){
+            run.reject(run.nextRow(), "Malformed JSON, import stopped: " + e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private String validate(Book book){
+        if(book.getTitle() == null || book.getTitle().isBlank()){
+            return "title is required";
+        }
+        if(book.getAuthor() == null || book.getAuthor().isBlank()){
+            return "author is required";
+        }
+        Set<ConstraintViolation<Book>> violations = validator.validate(book);
+        if(!violations.isEmpty()){
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        return null;
+    }
+
+    private static String column(List<String> fields, Map<String, Integer> columns, String name){
+        Integer index = columns.get(name);
+        if(index == null || index >= fields.size()){
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // one RFC 4180 record: a line, continued over the next ones while a quoted field is open, so a quoted
+    // field may hold line breaks (read back as \n). stops early past MAX_CSV_RECORD, null at the end of the input
+    static String readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if(line == null || !opensQuote(line, false)){
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        boolean quoted = true;
+        while(quoted && record.length() <= MAX_CSV_RECORD && (line = reader.readLine()) != null){
+            record.append('\n').append(line);
+            quoted = opensQuote(line, true);
+        }
+        return record.toString();   //still quoted at the end of the input: splitCsvLine rejects it
+    }
+
+    // whether a quoted field is still open at the end of the line, "" toggles twice and keeps the state
+    private static boolean opensQuote(String line, boolean quoted){
+        for(int i = line.indexOf('"'); i >= 0; i = line.indexOf('"', i + 1)){
+            quoted = !quoted;
+        }
+        return quoted;
+    }
+
+    // the fields of one record: separated by commas, optionally quoted, "" inside quotes is a quote
+    static List<String> splitCsvLine(String line){
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for(int i = 0; i < line.length(); i++){
+            char c = line.charAt(i);
+            if(quoted){
+                if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"'){
+                    field.append('"');
+                    i++;
+                }else if(c == '"'){
+                    quoted = false;
+                }else{
+                    field.append(c);
+                }
+            }else if(c == '"'){
+                quoted = true;
+            }else if(c == ','){
+                fields.add(field.toString());
+                field.setLength(0);
+            }else{
+                field.append(c);
+            }
+        }
+        if(quoted){
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+
+    // state of one import request
+    private final class Run {
+        private final List<Book> pending = new ArrayList<>(batchSize);
+        private final List<Integer> pendingRows = new ArrayList<>(batchSize);
+        private final List<BulkImportReport.RowError> errors = new ArrayList<>();
+        private final long started = System.nanoTime();
+        private int received;
+        private int imported;
+        private int failed;
+
+        int nextRow(){
+            return ++received;
+        }
+
+        void accept(int row, Book book){
+            book.setId(null);      //ids always come from the sequence
+            book.setLoans(null);
+            String error = validate(book);
+            if(error != null){
+                reject(row, error);
+                return;
+            }
+            pending.add(book);
+            pendingRows.add(row);
+            if(pending.size() >= batchSize){
+                flush();
+            }
+        }
+
+        void reject(int row, String message){
+            failed++;
+            if(errors.size() < maxReportedErrors){
+                errors.add(new BulkImportReport.RowError(row, message));
+            }
+        }
+
+        void flush(){
+            if(pending.isEmpty()){
+                return;
+            }
+            try{
+                transactionTemplate.executeWithoutResult(status -> {
+                    Session session = entityManager.unwrap(Session.class);
+                    session.setJdbcBatchSize(batchSize);
+                    session.setCacheMode(CacheMode.IGNORE);   //don't fill the second-level cache with the whole import
+                    for(Book book : pending){
+                        entityManager.persist(book);
+                    }
+                    entityManager.flush();
+                    entityManager.clear();   //nothing of this batch is needed again, keep the context empty
+                    //one event per batch, delivered after commit
+                    eventPublisher.publishEvent(new BooksImportedEvent(pending.stream().map(BookChangedEvent::saved).toList()));
+                });
+                imported += pending.size();
+            }catch(RuntimeException e){
+                String message = "Batch rejected by the database: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                pendingRows.forEach(row -> reject(row, message));
+            }
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        BulkImportReport finish(){
+            flush();
+            long millis = Math.max((System.nanoTime() - started) / 1_000_000, 1);
+            log.info("Bulk book import: {} rows received, {} imported, {} failed in {} ms ({} rows/s)",
+                    received, imported, failed, millis, imported * 1000L / millis);
+            return new BulkImportReport(received, imported, failed, List.copyOf(errors));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.library_management_system.book;
+
+
+
+// published after a book row is inserted, updated or deleted (including availability flips by loans),
+// so in-memory views of the catalog can follow the table without scanning it
+public record BookChangedEvent(Long id, String title, String author, String isbn, boolean available, boolean deleted) {
+
+    public static BookChangedEvent saved(Book book){
+        return new BookChangedEvent(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.isAvailable(), false);
+    }
+
+    public static BookChangedEvent deleted(Long id){
+        return new BookChangedEvent(id, null, null, null, false, true);
+    }
+}
@@ -1,9 +1,23 @@
 package com.project.library_management_system.book;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,8 +28,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.project.library_management_system.config.SqlBudget;
 import com.project.library_management_system.exception.NotFoundException;
+import com.project.library_management_system.loan.LoanService;
 
 import jakarta.validation.Valid;
 
@@ -25,20 +44,140 @@ public class BookController {
 
 
     private static String error="Books Are Not Found";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_SIZE = 20;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String TEXT_CSV = "text/csv";
+
     private BookRepository bookRepository;
+    private BookExporter bookExporter;
+    private BookBulkImporter bookBulkImporter;
+    private BookSearchIndex bookSearchIndex;
+    private BookAvailability bookAvailability;
+    private ApplicationEventPublisher eventPublisher;
+    private BookVersions bookVersions;
+    private LoanService loanService;
+    private String cacheControl;
 
-    public BookController(BookRepository bookRepository){
+    public BookController(BookRepository bookRepository, BookExporter bookExporter, BookBulkImporter bookBulkImporter,
+                          BookSearchIndex bookSearchIndex, BookAvailability bookAvailability,
+                          ApplicationEventPublisher eventPublisher, BookVersions bookVersions, LoanService loanService,
+                          @Value("${books.http-cache.max-age:0s}") Duration maxAge){
         this.bookRepository=bookRepository;
+        this.bookExporter=bookExporter;
+        this.bookBulkImporter=bookBulkImporter;
+        this.bookSearchIndex=bookSearchIndex;
+        this.bookAvailability=bookAvailability;
+        this.eventPublisher=eventPublisher;
+        this.bookVersions=bookVersions;
+        this.loanService=loanService;
+        //responses depend on the caller's token, so only the client itself may keep them
+        this.cacheControl=(maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge).mustRevalidate())
+                .cachePrivate()
+                .getHeaderValue();
+    }
+
+    // conditional GET: a client that sends back the current etag in If-None-Match gets a 304
+    // before the repository or jackson are touched
+    private boolean notModified(ServletWebRequest request, String etag){
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);   //json, cbor or smile by the same url
+        return request.checkNotModified(etag);
     }
 
     @GetMapping
-    public List<Book> findAllBooks(){
-        return this.bookRepository.findAll();
+    @SqlBudget(1)
+    public List<BookView> findAllBooks(ServletWebRequest request){
+        if(notModified(request, bookVersions.tableTag())){
+            return null;
+        }
+        return this.bookRepository.findAllViews();
+    }
+
+    // keyset pagination: /api/books?after=0&limit=100, then follow the "next" link
+    @GetMapping(params = "after")
+    @SqlBudget(1)
+    public ResponseEntity<List<BookView>> findPage(@RequestParam Long after,
+                                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit){
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        List<BookView> page = bookRepository.findPageAfter(after, Limit.of(pageSize));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.size() == pageSize){   //a full page means there may be more rows after it
+            response.header(HttpHeaders.LINK, nextLink(page.get(page.size() - 1).id(), pageSize));
+        }
+        return response.body(page);
+    }
+
+    // live counters, answered from memory
+    @GetMapping("/availability/summary")
+    public AvailabilitySummary availabilitySummary(){
+        return bookAvailability.summary();
+    }
+
+    // ids of available (available=false: on loan) books, keyset paged like findPage
+    @GetMapping("/availability/ids")
+    public ResponseEntity<List<Long>> availabilityIds(@RequestParam(defaultValue = "true") boolean available,
+                                                      @RequestParam(defaultValue = "0") long after,
+                                                      @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit){
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        List<Long> ids = bookAvailability.ids(available, after, pageSize);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(ids.size() == pageSize){
+            response.header(HttpHeaders.LINK, nextLink(ids.get(ids.size() - 1), pageSize));
+        }
+        return response.body(ids);
+    }
+
+    private static String nextLink(Long lastId, int pageSize){
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", lastId)
+                    .replaceQueryParam("limit", pageSize)
+                    .toUriString();
+        return "<" + next + ">; rel=\"next\"";
     }
 
+    // whole catalog as newline delimited json, written row by row from the database cursor
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBooks(){
+        StreamingResponseBody body = out -> bookExporter.writeNdjson(out);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(body);
+    }
+
+    // ranked full text search over title, author and isbn: /api/books/search?q=tolkien hobbit&page=0&size=20
+    @GetMapping("/search")
+    public ResponseEntity<List<BookView>> search(@RequestParam String q,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "" + DEFAULT_SEARCH_SIZE) int size){
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        BookSearchIndex.SearchPage result = bookSearchIndex.search(q, Math.max(page, 0), pageSize);
+
+        List<BookView> books = List.of();
+        if(!result.ids().isEmpty()){
+            Map<Long, BookView> byId = bookRepository.findViewsByIds(result.ids()).stream()
+                        .collect(Collectors.toMap(BookView::id, Function.identity()));
+            books = result.ids().stream()      //keep the ranking of the index
+                        .map(byId::get)
+                        .filter(Objects::nonNull)
+                        .toList();
+        }
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(result.total()))
+                .body(books);
+    }
+
+    //by primary key, so a cached book is served without a database round trip
     @GetMapping("/{id}")
-    public Book findById(@PathVariable Long id){
-        Optional<Book> optional = bookRepository.findById(id);
+    @SqlBudget(1)
+    public BookView findById(@PathVariable Long id, ServletWebRequest request){
+        if(notModified(request, bookVersions.rowTag(id))){
+            return null;
+        }
+        Optional<BookView> optional = bookRepository.findById(id).map(BookView::from);
         if(optional.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -46,8 +185,12 @@ public class BookController {
     }
 
     @GetMapping("/by-author")
-    public List<Book> findAllByAuthor(@RequestParam String author){
-        List<Book> list = bookRepository.findAllByAuthor(author);
+    @SqlBudget(1)
+    public List<BookView> findAllByAuthor(@RequestParam String author, ServletWebRequest request){
+        if(notModified(request, bookVersions.tableTag())){
+            return null;
+        }
+        List<BookView> list = bookRepository.findViewsByAuthor(author);
         if(list.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -56,8 +199,12 @@ public class BookController {
 
 
     @GetMapping("/by-title")
-    public List<Book> findAllByTitle(@RequestParam String title){
-        List<Book> list = bookRepository.findAllByTitle(title);
+    @SqlBudget(1)
+    public List<BookView> findAllByTitle(@RequestParam String title, ServletWebRequest request){
+        if(notModified(request, bookVersions.tableTag())){
+            return null;
+        }
+        List<BookView> list = bookRepository.findViewsByTitle(title);
         if(list.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -66,8 +213,12 @@ public class BookController {
 
 
     @GetMapping("/available")
-    public List<Book> findAllAvailable(){
-        List<Book> list = bookRepository.findAllByAvailable(true);
+    @SqlBudget(1)
+    public List<BookView> findAllAvailable(ServletWebRequest request){
+        if(notModified(request, bookVersions.tableTag())){
+            return null;
+        }
+        List<BookView> list = bookRepository.findViewsByAvailable(true);
         if(list.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -75,8 +226,12 @@ public class BookController {
     }
 
     @GetMapping("/non-available")
-    public List<Book> findAllNonAvailable(){
-        List<Book> list = bookRepository.findAllByAvailable(false);
+    @SqlBudget(1)
+    public List<BookView> findAllNonAvailable(ServletWebRequest request){
+        if(notModified(request, bookVersions.tableTag())){
+            return null;
+        }
+        List<BookView> list = bookRepository.findViewsByAvailable(false);
         if(list.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -87,14 +242,28 @@ public class BookController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping()
     void create(@RequestBody @Valid Book book){
-        bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(saved));
+    }
+
+
+    // bulk import, the body is read as it arrives: a JSON array of books or a CSV file with a header line
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportReport bulkImportJson(InputStream body) throws IOException {
+        return bookBulkImporter.importJson(body);
+    }
+
+    @PostMapping(value = "/bulk", consumes = TEXT_CSV)
+    public BulkImportReport bulkImportCsv(InputStream body) throws IOException {
+        return bookBulkImporter.importCsv(body);
     }
 
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/{id}")
     void deleteById(@PathVariable Long id){
-        bookRepository.deleteById(id);
+        loanService.deleteBook(id);   //the book's loans go with it, out of the loan stats too
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id));
     }
 
 
@@ -104,10 +273,9 @@ public class BookController {
        Book book = bookRepository.findById(id)
         .map(existingBook -> {                       //map will take the current value of the optional
             existingBook.setAuthor(updatedBook.getAuthor());
-            existingBook.setAvailable(updatedBook.isAvailable());
+            //available is not taken from the body: only loans flip it (LoanService), a PUT keeps the current value
             existingBook.setIsbn(updatedBook.getIsbn());
             existingBook.setTitle(updatedBook.getTitle());
-            existingBook.setLoan(updatedBook.getLoan());
             
             return existingBook;
             
@@ -115,6 +283,7 @@ public class BookController {
         .orElseThrow(()-> new NotFoundException(error));
 
         bookRepository.save(book);   //it will replace the current book with same id in the database. 
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
     }
 
 
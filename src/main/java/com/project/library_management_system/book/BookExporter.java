@@ -0,0 +1,47 @@
+package com.project.library_management_system.book;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+@Service
+public class BookExporter {
+
+    private BookRepository bookRepository;
+    private ObjectMapper objectMapper;
+
+    public BookExporter(BookRepository bookRepository, ObjectMapper objectMapper){
+        this.bookRepository=bookRepository;
+        this.objectMapper=objectMapper;
+    }
+
+    // writes every book as one json line (NDJSON) straight from the jdbc cursor,
+    // so only the current row is kept in memory no matter how big the catalog is
+    @Transactional(readOnly = true)
+    public void writeNdjson(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(BookView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<BookView> books = bookRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); //the servlet container owns the stream
+            generator.setRootValueSeparator(null);
+
+            Iterator<BookView> iterator = books.iterator();
+            while(iterator.hasNext()){
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
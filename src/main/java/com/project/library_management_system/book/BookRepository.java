@@ -1,8 +1,21 @@
 package com.project.library_management_system.book;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 public interface BookRepository extends JpaRepository <Book, Long>  {
 
@@ -11,4 +24,50 @@ public interface BookRepository extends JpaRepository <Book, Long>  {
     public List<Book> findAllByTitle(String title);
 
     public List<Book> findAllByAvailable(boolean available);
+
+    //read side of the api: only the columns of BookView are selected, nothing is managed by the persistence context
+    @Query("select new com.project.library_management_system.book.BookView(b.id, b.title, b.author, b.isbn, b.available) "
+            + "from Book b order by b.id")
+    public List<BookView> findAllViews();
+
+    //query cache: the rows of an author are kept until the next write to the book table
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "books-by-author")
+    })
+    public List<BookView> findViewsByAuthor(String author);
+
+    public List<BookView> findViewsByTitle(String title);
+
+    public List<BookView> findViewsByAvailable(boolean available);
+
+    //keyset page: seeks past the last id the client has seen instead of using an offset
+    @Query("select new com.project.library_management_system.book.BookView(b.id, b.title, b.author, b.isbn, b.available) "
+            + "from Book b where b.id > :after order by b.id")
+    public List<BookView> findPageAfter(@Param("after") Long after, Limit limit);
+
+    //forward-only cursor over the whole catalog, must be consumed inside a transaction and closed
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.project.library_management_system.book.BookView(b.id, b.title, b.author, b.isbn, b.available) "
+            + "from Book b order by b.id")
+    public Stream<BookView> streamAll();
+
+    @Query("select new com.project.library_management_system.book.BookView(b.id, b.title, b.author, b.isbn, b.available) "
+            + "from Book b where b.id in :ids")
+    public List<BookView> findViewsByIds(@Param("ids") Collection<Long> ids);
+
+    //check-and-reserve in one statement: 1 when this caller took the book, 0 when it was already on loan (or missing).
+    //the row lock of the update serializes racing checkouts, so only one of them can see available = true
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.available = false where b.id = :id and b.available = true")
+    public int reserve(@Param("id") Long id);
+
+    //row lock until the transaction ends: the changes to a book's reservation queue and the hand-off of the book
+    //to its head take turns per book, different books never wait for each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.id = :id")
+    public Optional<Book> findForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,350 @@
+package com.project.library_management_system.book;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// in-memory inverted index over title/author/isbn: case and accent folded terms -> posting lists.
+// built once at startup, afterwards kept in sync from BookChangedEvent instead of re-reading the table.
+// the build runs while the context starts, before the web server and the schedulers can change a book,
+// so no event is published while the table is read and none is lost or overwritten by an older row
+@Component
+public class BookSearchIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    //how well a query term matched an indexed term
+    private static final double EXACT = 3.0;
+    private static final double PREFIX = 2.0;
+    private static final double FUZZY = 1.0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, PostingList> terms = new TreeMap<>();  //sorted, so a prefix is a sub map
+    private final Map<Long, String[]> documents = new HashMap<>();           //book id -> its terms, needed to un-index
+
+    private BookRepository bookRepository;
+    private TransactionTemplate readOnlyTransaction;
+
+    public BookSearchIndex(BookRepository bookRepository, PlatformTransactionManager transactionManager){
+        this.bookRepository=bookRepository;
+        this.readOnlyTransaction=new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated(){
+        load();
+    }
+
+    public void load(){
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try(Stream<BookView> books = bookRepository.streamAll()){
+                books.forEach(book -> index(book.id(), book.title(), book.author(), book.isbn()));
+            }
+        });
+        log.info("Book search index loaded: {} books, {} terms", size(), termCount());
+    }
+
+    //after commit when published inside a transaction, right away otherwise
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event){
+        if(event.deleted()){
+            remove(event.id());
+        }else{
+            index(event.id(), event.title(), event.author(), event.isbn());
+        }
+    }
+
+    //one write lock for a whole imported batch
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event){
+        List<Map.Entry<Long, Map<String, Byte>>> batch = event.books().stream()
+                .map(book -> Map.entry(book.id(), terms(book.title(), book.author(), book.isbn())))
+                .toList();
+        lock.writeLock().lock();
+        try{
+            batch.forEach(document -> indexLocked(document.getKey(), document.getValue()));
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Long id, String title, String author, String isbn){
+        Map<String, Byte> fieldsByTerm = terms(title, author, isbn);
+        lock.writeLock().lock();
+        try{
+            indexLocked(id, fieldsByTerm);
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id){
+        lock.writeLock().lock();
+        try{
+            removeLocked(id);
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    // every query term is looked up as exact term, as prefix and (4+ chars) with 1-2 typos.
+    // books matching more query terms come first, then by score, then by id
+    public SearchPage search(String query, int page, int size){
+        List<String> queryTerms = tokenize(query).stream().distinct().toList();
+        Map<Long, Hit> hits = new HashMap<>();
+
+        lock.readLock().lock();
+        try{
+            for(String token : queryTerms){
+                Map<Long, Double> best = new HashMap<>();
+
+                for(Map.Entry<String, PostingList> entry : terms.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()){
+                    collect(best, entry.getValue(), entry.getKey().equals(token) ? EXACT : PREFIX);
+                }
+
+                if(token.length() >= 4){
+                    int maxEdits = token.length() >= 8 ? 2 : 1;
+                    String first = token.substring(0, 1);
+                    String afterFirst = String.valueOf((char) (token.charAt(0) + 1));
+                    for(Map.Entry<String, PostingList> entry : terms.subMap(first, true, afterFirst, false).entrySet()){
+                        String term = entry.getKey();
+                        if(term.startsWith(token) || Math.abs(term.length() - token.length()) > maxEdits){
+                            continue;
+                        }
+                        if(editDistance(token, term, maxEdits) <= maxEdits){
+                            collect(best, entry.getValue(), FUZZY);
+                        }
+                    }
+                }
+
+                best.forEach((id, score) -> hits.computeIfAbsent(id, Hit::new).add(score));
+            }
+        }finally{
+            lock.readLock().unlock();
+        }
+
+        List<Long> ids = hits.values().stream()
+                .sorted(Comparator.comparingInt(Hit::matchedTerms).reversed()
+                        .thenComparing(Comparator.comparingDouble(Hit::score).reversed())
+                        .thenComparingLong(Hit::id))
+                .skip((long) page * size)
+                .limit(size)
+                .map(Hit::id)
+                .toList();
+        return new SearchPage(hits.size(), ids);
+    }
+
+    public int size(){
+        lock.readLock().lock();
+        try{
+            return documents.size();
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    int termCount(){
+        lock.readLock().lock();
+        try{
+            return terms.size();
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // the lowercase runs of letters and digits (\p{L}, \p{N}) of the text, accents removed.
+    // every title, author and isbn of a bulk import goes through here, so the regex split it replaced is done
+    // by hand (one pass, no folded copy of the text) and the NFD normalization is skipped for plain ascii
+    static List<String> tokenize(String text){
+        if(text == null || text.isBlank()){
+            return List.of();
+        }
+        if(!isAscii(text)){   //decompose and drop the accents only when there can be any
+            text = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        }
+        List<String> tokens = new ArrayList<>(4);
+        int start = -1;
+        for(int i = 0; i < text.length(); ){
+            int c = text.codePointAt(i);
+            if(isWordChar(c)){
+                if(start < 0){
+                    start = i;
+                }
+            }else if(start >= 0){
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+            i += Character.charCount(c);
+        }
+        if(start >= 0){
+            tokens.add(text.substring(start).toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    //what the regex \p{L} and \p{N} match: letters, and digits along with the other numbers (Ⅻ, ½)
+    private static boolean isWordChar(int c){
+        if(c < 0x80){
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        if(Character.isLetter(c)){
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+    private static boolean isAscii(String text){
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) >= 0x80){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //"978-0547928227" is findable by its parts and as "9780547928227"
+    private static List<String> isbnTerms(String isbn){
+        List<String> tokens = new ArrayList<>(tokenize(isbn));
+        if(tokens.size() > 1){
+            tokens.add(String.join("", tokens));
+        }
+        return tokens;
+    }
+
+    private static void addTerms(Map<String, Byte> fieldsByTerm, List<String> tokens, byte field){
+        for(String token : tokens){
+            fieldsByTerm.merge(token, field, (a, b) -> (byte) (a | b));
+        }
+    }
+
+    private static Map<String, Byte> terms(String title, String author, String isbn){
+        Map<String, Byte> fieldsByTerm = new HashMap<>();
+        addTerms(fieldsByTerm, tokenize(title), PostingList.TITLE);
+        addTerms(fieldsByTerm, tokenize(author), PostingList.AUTHOR);
+        addTerms(fieldsByTerm, isbnTerms(isbn), PostingList.ISBN);
+        return fieldsByTerm;
+    }
+
+    private void indexLocked(Long id, Map<String, Byte> fieldsByTerm){
+        removeLocked(id);
+        fieldsByTerm.forEach((term, fields) -> terms.computeIfAbsent(term, t -> new PostingList()).add(id, fields));
+        documents.put(id, fieldsByTerm.keySet().toArray(String[]::new));
+    }
+
+    private void removeLocked(Long id){
+        String[] old = documents.remove(id);
+        if(old == null){
+            return;
+        }
+        for(String term : old){
+            PostingList postings = terms.get(term);
+            if(postings != null){
+                postings.remove(id);
+                if(postings.size() == 0){
+                    terms.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void collect(Map<Long, Double> best, PostingList postings, double weight){
+        for(int i = 0; i < postings.size(); i++){
+            double score = weight * fieldBoost(postings.fields(i));
+            best.merge(postings.id(i), score, Math::max);
+        }
+    }
+
+    private static double fieldBoost(byte fields){
+        if((fields & PostingList.TITLE) != 0){
+            return 2.0;
+        }
+        if((fields & PostingList.AUTHOR) != 0){
+            return 1.5;
+        }
+        return 1.0;
+    }
+
+    // optimal string alignment distance (a swap of two letters counts as one edit), gives up above max
+    static int editDistance(String a, String b, int max){
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for(int j = 0; j <= b.length(); j++){
+            previous[j] = j;
+        }
+        for(int i = 1; i <= a.length(); i++){
+            current[0] = i;
+            int rowMin = current[0];
+            for(int j = 1; j <= b.length(); j++){
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if(i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)){
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if(rowMin > max){
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+
+    public record SearchPage(long total, List<Long> ids) {
+
+    }
+
+    private static final class Hit {
+        private final long id;
+        private int matchedTerms;
+        private double score;
+
+        Hit(Long id){
+            this.id = id;
+        }
+
+        void add(double termScore){
+            matchedTerms++;
+            score += termScore;
+        }
+
+        long id(){
+            return id;
+        }
+
+        int matchedTerms(){
+            return matchedTerms;
+        }
+
+        double score(){
+            return score;
+        }
+    }
+}
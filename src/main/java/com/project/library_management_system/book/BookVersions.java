@@ -0,0 +1,42 @@
+package com.project.library_management_system.book;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// version counters behind the etags of the catalog: one for the whole book table and one per row changed since
+// startup, bumped after commit by the same events the in-memory views follow. a response is tagged with the
+// version read before its query, so a tag can only ever sit on data that is newer than it, never older.
+// the epoch keeps tags of an earlier run from matching after a restart.
+// the tags are weak: the json, cbor and gzipped bodies of one version are the same data, and tomcat
+// refuses to compress a response with a strong etag
+@Component
+public class BookVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong table = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> rows = new ConcurrentHashMap<>();   //kept after a delete too
+
+    // etag of anything read from the whole table (lists, filters)
+    public String tableTag(){
+        return "W/\"" + epoch + "-" + table.get() + "\"";
+    }
+
+    // etag of one book, only changes of that row move it
+    public String rowTag(Long id){
+        return "W/\"" + epoch + "-" + id + "-" + rows.getOrDefault(id, 0L) + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event){
+        rows.put(event.id(), table.incrementAndGet());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event){
+        long version = table.incrementAndGet();   //one bump for the whole batch
+        event.books().forEach(book -> rows.put(book.id(), version));
+    }
+}
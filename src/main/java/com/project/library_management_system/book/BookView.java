@@ -0,0 +1,13 @@
+package com.project.library_management_system.book;
+
+
+
+// flat read-only row of the book table, used where we don't want managed entities (paging, streaming)
+public record BookView(Long id, String title, String author, String isbn, boolean available) {
+
+    // for lookups answered by the second-level cache, which hands back entities
+    public static BookView from(Book book){
+        return new BookView(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.isAvailable());
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.project.library_management_system.book;
+
+import java.util.List;
+
+
+
+// published once per committed bulk import batch instead of one BookChangedEvent per row,
+// listeners of BookChangedEvent should handle this one too
+public record BooksImportedEvent(List<BookChangedEvent> books) {
+
+}
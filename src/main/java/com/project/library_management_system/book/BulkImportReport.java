@@ -0,0 +1,14 @@
+package com.project.library_management_system.book;
+
+import java.util.List;
+
+
+
+// outcome of POST /api/books/bulk: rows are numbered from 1 in the order they were sent
+// (csv header not counted), only the first books.import.max-reported-errors failures are listed
+public record BulkImportReport(int received, int imported, int failed, List<RowError> errors) {
+
+    public record RowError(int row, String message) {
+
+    }
+}
@@ -0,0 +1,58 @@
+package com.project.library_management_system.book;
+
+import java.util.Arrays;
+
+
+// sorted book ids of one term plus a bit mask per id telling in which fields the term occurs.
+// primitive arrays instead of Set<Long>: ~9 bytes per posting instead of ~50
+class PostingList {
+
+    static final byte TITLE = 1;
+    static final byte AUTHOR = 2;
+    static final byte ISBN = 4;
+
+    private long[] ids = new long[2];
+    private byte[] fields = new byte[2];
+    private int size;
+
+    void add(long id, byte field){
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if(index >= 0){
+            fields[index] |= field;
+            return;
+        }
+        int insertAt = -index - 1;
+        if(size == ids.length){
+            ids = Arrays.copyOf(ids, size * 2);
+            fields = Arrays.copyOf(fields, size * 2);
+        }
+        //new books get the highest id, so this is almost always an append
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        System.arraycopy(fields, insertAt, fields, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        fields[insertAt] = field;
+        size++;
+    }
+
+    void remove(long id){
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if(index < 0){
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(fields, index + 1, fields, index, size - index - 1);
+        size--;
+    }
+
+    int size(){
+        return size;
+    }
+
+    long id(int index){
+        return ids[index];
+    }
+
+    byte fields(int index){
+        return fields[index];
+    }
+}
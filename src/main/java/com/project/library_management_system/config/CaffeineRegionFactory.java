@@ -0,0 +1,27 @@
+package com.project.library_management_system.config;
+
+import java.net.URI;
+import java.util.Map;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+
+import com.github.benmanes.caffeine.jcache.CacheManagerImpl;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+// hibernate's second-level cache regions in caffeine, as configured in hibernate-cache.conf.
+// every SessionFactory gets a CacheManager of its own: the JCache provider hands out one shared manager per
+// uri, and the first factory to shut down (an application context of the tests) would close it under the others
+public class CaffeineRegionFactory extends JCacheRegionFactory {
+
+    private static final URI CONFIG = URI.create("classpath:hibernate-cache.conf");   //also found inside the jar
+
+    @Override
+    protected CacheManager resolveCacheManager(SessionFactoryOptions settings, Map<String, Object> properties){
+        CaffeineCachingProvider provider = new CaffeineCachingProvider();
+        return new CacheManagerImpl(provider, false, CONFIG, CaffeineRegionFactory.class.getClassLoader(),
+                provider.getDefaultProperties());
+    }
+}
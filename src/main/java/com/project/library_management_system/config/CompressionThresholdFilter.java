@@ -0,0 +1,200 @@
+package com.project.library_management_system.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+// tomcat only applies server.compression.min-response-size when it knows the Content-Length, and jackson streams
+// its output without one, so every json body was gzipped, a 90 byte one too. this holds back the first threshold
+// bytes of a response: a body that ends within them goes out with its length (and uncompressed), a longer one is
+// passed through as soon as it crosses the threshold, so big and streamed responses are never buffered whole
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    private final int threshold;
+
+    public CompressionThresholdFilter(int threshold){
+        this.threshold=threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if(acceptEncoding == null || !acceptEncoding.contains("gzip")){   //nothing would be compressed anyway
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ThresholdResponse thresholdResponse = new ThresholdResponse(response, threshold);
+        chain.doFilter(request, thresholdResponse);
+        if(request.isAsyncStarted()){
+            thresholdResponse.passThrough();   //the body is still being written by another thread
+        }else{
+            thresholdResponse.finish();
+        }
+    }
+
+
+    private static class ThresholdResponse extends HttpServletResponseWrapper {
+
+        private final int threshold;
+        private final ByteArrayOutputStream held = new ByteArrayOutputStream();
+        private boolean passedThrough;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        ThresholdResponse(HttpServletResponse response, int threshold){
+            super(response);
+            this.threshold=threshold;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream(){
+            if(outputStream == null){
+                outputStream = new HoldingOutputStream();
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if(writer == null){
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public synchronized void flushBuffer() throws IOException {
+            if(writer != null){
+                writer.flush();
+            }
+            if(passedThrough){
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public synchronized void resetBuffer(){
+            held.reset();
+            super.resetBuffer();
+        }
+
+        @Override
+        public synchronized void reset(){
+            held.reset();
+            super.reset();
+        }
+
+        @Override
+        public synchronized void sendError(int sc, String msg) throws IOException {
+            held.reset();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public synchronized void sendError(int sc) throws IOException {
+            held.reset();
+            super.sendError(sc);
+        }
+
+        // synchronized with the writes: an async body may be written while the filter hands over
+        synchronized void passThrough() throws IOException {
+            if(!passedThrough){
+                passedThrough = true;
+                if(held.size() > 0){
+                    held.writeTo(super.getOutputStream());
+                    held.reset();
+                }
+            }
+        }
+
+        synchronized void finish() throws IOException {
+            if(writer != null){
+                writer.flush();
+            }
+            if(!passedThrough && !isCommitted()){
+                setContentLength(held.size());   //known and below the threshold: tomcat leaves it uncompressed
+                passThrough();
+            }
+        }
+
+        synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            if(!passedThrough && held.size() + length > threshold){
+                passThrough();
+            }
+            if(passedThrough){
+                super.getOutputStream().write(bytes, offset, length);
+            }else{
+                held.write(bytes, offset, length);
+            }
+        }
+
+        synchronized void flushStream() throws IOException {
+            if(passedThrough){   //flushing would commit the headers before the length is known
+                super.getOutputStream().flush();
+            }
+        }
+
+
+        synchronized boolean ready(){
+            try{
+                return !passedThrough || super.getOutputStream().isReady();
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // a non-blocking writer gets the container's stream right away, nothing is held back for it
+        synchronized void writeListener(WriteListener listener) throws IOException {
+            passThrough();
+            super.getOutputStream().setWriteListener(listener);
+        }
+
+
+        private class HoldingOutputStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ThresholdResponse.this.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                flushStream();
+            }
+
+            @Override
+            public boolean isReady(){
+                return ready();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener){
+                try{
+                    writeListener(listener);
+                }catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.project.library_management_system.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// logs the datastore settings that are actually in effect once the application is up: where the data lives,
+// the pool, the jdbc batching and the statement cache. a wrong profile or a typo in a property shows up
+// in the startup log instead of as a slow production
+@Component
+public class DatastoreSelfCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(DatastoreSelfCheck.class);
+
+    private DataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+
+    public DatastoreSelfCheck(DataSource dataSource, EntityManagerFactory entityManagerFactory){
+        this.dataSource=dataSource;
+        this.entityManagerFactory=entityManagerFactory;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() throws SQLException {
+        Map<String, Object> report = report();
+        log.info("Datastore: {}", report);
+
+        if(String.valueOf(report.get("url")).startsWith("jdbc:h2:mem:")){
+            log.info("Datastore is in memory, data is lost on restart (the 'file' profile keeps it on disk)");
+        }
+        if((int) report.get("jdbc.batchSize") <= 1){
+            log.warn("JDBC batching is off, every insert/update is its own round trip (hibernate.jdbc.batch_size)");
+        }
+        if(report.containsKey("pool.leakDetectionMs") && (long) report.get("pool.leakDetectionMs") == 0){
+            log.info("Connection leak detection is off (spring.datasource.hikari.leak-detection-threshold)");
+        }
+    }
+
+    // effective values, read back from the pool, hibernate and the database itself
+    public Map<String, Object> report() throws SQLException {
+        Map<String, Object> report = new LinkedHashMap<>();
+
+        if(dataSource.isWrapperFor(HikariDataSource.class)){
+            HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+            report.put("pool.name", pool.getPoolName());
+            report.put("pool.maximumSize", pool.getMaximumPoolSize());
+            report.put("pool.minimumIdle", pool.getMinimumIdle());
+            report.put("pool.connectionTimeoutMs", pool.getConnectionTimeout());
+            report.put("pool.maxLifetimeMs", pool.getMaxLifetime());
+            report.put("pool.leakDetectionMs", pool.getLeakDetectionThreshold());
+        }
+
+        SessionFactoryOptions options = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getSessionFactoryOptions();
+        report.put("jdbc.batchSize", options.getJdbcBatchSize());
+        report.put("jdbc.orderInserts", options.isOrderInsertsEnabled());
+        report.put("jdbc.orderUpdates", options.isOrderUpdatesEnabled());
+        report.put("query.inClauseParameterPadding", options.inClauseParameterPaddingEnabled());
+
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            report.put("connectionCheckoutMicros", (System.nanoTime() - start) / 1000);
+            DatabaseMetaData metaData = connection.getMetaData();
+            report.put("url", metaData.getURL());
+            report.put("database", metaData.getDatabaseProductName() + " " + metaData.getDatabaseProductVersion());
+            if("H2".equals(metaData.getDatabaseProductName())){
+                report.put("h2.queryCacheSize", h2Setting(connection, "QUERY_CACHE_SIZE"));
+            }
+        }
+        return report;
+    }
+
+    private static String h2Setting(Connection connection, String name) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                 "select setting_value from information_schema.settings where setting_name = '" + name + "'")) {
+            return result.next() ? result.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.project.library_management_system.config;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// GET /actuator/hibernatecache: hits, misses and puts of the second-level cache, per region and in total
+// for entities, natural ids and queries. DELETE empties every region, for when rows were changed with sql by hand
+@Component
+@Endpoint(id = "hibernatecache")
+public class HibernateCacheEndpoint {
+
+    private SessionFactory sessionFactory;
+
+    public HibernateCacheEndpoint(EntityManagerFactory entityManagerFactory){
+        this.sessionFactory=entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @ReadOperation
+    public CacheReport report(){
+        Statistics statistics = sessionFactory.getStatistics();
+
+        Map<String, RegionReport> regions = new TreeMap<>();
+        for(String name : statistics.getSecondLevelCacheRegionNames()){
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if(region != null){
+                long size = region.getElementCountInMemory();
+                regions.put(name, new RegionReport(region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                        size < 0 ? null : size));   //negative: the provider doesn't tell
+            }
+        }
+
+        return new CacheReport(
+                statistics.isStatisticsEnabled(),
+                Totals.of(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                        statistics.getSecondLevelCachePutCount()),
+                Totals.of(statistics.getNaturalIdCacheHitCount(), statistics.getNaturalIdCacheMissCount(),
+                        statistics.getNaturalIdCachePutCount()),
+                Totals.of(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                        statistics.getQueryCachePutCount()),
+                regions);
+    }
+
+    @DeleteOperation
+    public void evictAll(){
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+
+    public record CacheReport(boolean statisticsEnabled, Totals entities, Totals naturalIds, Totals queries,
+                              Map<String, RegionReport> regions) {
+    }
+
+    public record Totals(long hits, long misses, long puts, double hitRatio) {
+
+        static Totals of(long hits, long misses, long puts){
+            long lookups = hits + misses;
+            return new Totals(hits, misses, puts, lookups == 0 ? 0 : (double) hits / lookups);
+        }
+    }
+
+    public record RegionReport(long hits, long misses, long puts, Long size) {
+    }
+}
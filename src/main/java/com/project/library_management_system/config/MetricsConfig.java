@@ -0,0 +1,35 @@
+package com.project.library_management_system.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.function.SingletonSupplier;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// the meters boot doesn't register by itself. http endpoints (http.server.requests), repository timings
+// (spring.data.repository.invocations) and the hikari pool (hikaricp.*) come from boot, their histograms
+// are switched on in application.properties; jwt and bcrypt timers are bound by the security beans
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    // static and with a lazy registry: post processors are created before the other beans,
+    // the registry is only looked up on the first repository call
+    @Bean
+    public static BeanPostProcessor repositoryRowMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry){
+        SingletonSupplier<MeterRegistry> registry = SingletonSupplier.of(meterRegistry::getObject);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if(bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactory){
+                    repositoryFactory.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, repository) -> proxy.addAdvice(
+                                    new RepositoryRowMetrics(repository.getRepositoryInterface(), registry))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.project.library_management_system.config;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// rows returned (or changed, for @Modifying queries) per repository call: repository.rows{repository,method}.
+// the timing of the same calls is boot's spring.data.repository.invocations, this only adds what it can't see.
+// the summary of a method is built on its first call and then reused, a call costs a map lookup and a size()
+public class RepositoryRowMetrics implements MethodInterceptor {
+
+    private final String repository;
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public RepositoryRowMetrics(Class<?> repositoryInterface, Supplier<MeterRegistry> meterRegistry){
+        this.repository=repositoryInterface.getSimpleName();
+        this.meterRegistry=meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        Method method = invocation.getMethod();
+        if(result instanceof Stream<?> stream){   //rows are only known once the caller has read them
+            DistributionSummary summary = summary(method);
+            long[] rows = new long[1];
+            return stream.peek(row -> rows[0]++).onClose(() -> summary.record(rows[0]));
+        }
+        long rows = rows(method, result);
+        if(rows >= 0){
+            summary(method).record(rows);
+        }
+        return result;
+    }
+
+    private DistributionSummary summary(Method method){
+        return summaries.computeIfAbsent(method, m -> DistributionSummary.builder("repository.rows")
+                .description("Rows returned or changed by a repository method")
+                .baseUnit("rows")
+                .tag("repository", repository)
+                .tag("method", m.getName())
+                .register(meterRegistry.get()));
+    }
+
+    // -1 for results that aren't rows: counts, exists checks, void
+    private static long rows(Method method, Object result){
+        if(result instanceof Number number){
+            return method.isAnnotationPresent(Modifying.class) ? number.longValue() : -1;
+        }
+        if(result instanceof Boolean || method.getReturnType() == void.class){
+            return -1;
+        }
+        if(result instanceof Collection<?> collection){
+            return collection.size();
+        }
+        if(result instanceof Slice<?> slice){
+            return slice.getNumberOfElements();
+        }
+        if(result instanceof Optional<?> optional){
+            return optional.isPresent() ? 1 : 0;
+        }
+        return result == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,18 @@
+package com.project.library_management_system.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// the most sql statements one call of an endpoint may run with an empty second-level cache.
+// SqlMonitor logs a request that goes over it; with sql.monitor.enforce-budgets=true (tests) the statement
+// that goes over fails instead, so a lazy load creeping into an endpoint breaks the build
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface SqlBudget {
+
+    int value();
+}
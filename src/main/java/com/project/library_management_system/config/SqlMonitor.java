@@ -0,0 +1,176 @@
+package com.project.library_management_system.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.project.library_management_system.exception.SqlBudgetExceededException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+// every jdbc statement of the application passes here (the pool is wrapped in a datasource-proxy, see SqlMonitorConfig).
+// per request it counts the statements of the handler and groups them by shape, the sql with its binds left out:
+// a shape that runs repeat-threshold times or more is a lazy load per row (N+1) when its binds differ, or the same
+// query asked again when they don't. both are logged when the request completes, as is a request over its @SqlBudget.
+// statements slower than slow-threshold are logged wherever they run. bind values are only logged as a fingerprint,
+// equal values give equal fingerprints, so the log tells repeated lookups apart without holding emails or hashes
+public class SqlMonitor implements QueryExecutionListener, AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlMonitor.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\?(\\s*,\\s*\\?)+\\)");
+
+    private final ThreadLocal<RequestSql> current = new ThreadLocal<>();
+    private final long slowThresholdMs;
+    private final int repeatThreshold;
+    private final boolean enforceBudgets;
+
+    public SqlMonitor(Duration slowThreshold, int repeatThreshold, boolean enforceBudgets){
+        this.slowThresholdMs=slowThreshold.toMillis();
+        this.repeatThreshold=repeatThreshold;
+        this.enforceBudgets=enforceBudgets;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(handler instanceof HandlerMethod method){
+            SqlBudget budget = method.getMethodAnnotation(SqlBudget.class);
+            if(budget == null){
+                budget = method.getBeanType().getAnnotation(SqlBudget.class);
+            }
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+            current.set(new RequestSql(endpoint, budget == null ? -1 : budget.value()));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        current.remove();   //the work goes on on another thread, the dispatch writing the result counts on its own
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestSql sql = current.get();
+        current.remove();
+        if(sql != null){
+            report(sql);
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        RequestSql sql = current.get();
+        if(enforceBudgets && sql != null && sql.budget >= 0 && sql.statements >= sql.budget){
+            throw new SqlBudgetExceededException(sql.endpoint + " needs more than its budget of " + sql.budget
+                    + " statement(s), the next one is: " + shape(queries.get(0).getQuery()));
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        RequestSql sql = current.get();
+        if(sql != null){
+            sql.statements++;
+            for(QueryInfo query : queries){
+                sql.record(shape(query.getQuery()), fingerprint(query));
+            }
+        }
+        if(execution.getElapsedTime() >= slowThresholdMs){
+            for(QueryInfo query : queries){
+                log.warn("Slow statement, {} ms{} [binds {}]: {}", execution.getElapsedTime(),
+                        sql == null ? "" : " in " + sql.endpoint, fingerprint(query), shape(query.getQuery()));
+            }
+        }
+    }
+
+    private void report(RequestSql sql){
+        if(sql.budget >= 0 && sql.statements > sql.budget){
+            log.warn("{} ran {} statements, its budget is {}", sql.endpoint, sql.statements, sql.budget);
+        }
+        sql.shapes.forEach((shape, runs) -> {
+            if(runs.count >= repeatThreshold){
+                if(runs.binds.size() > 1){
+                    log.warn("{} ran the same statement {} times with {} different binds, likely N+1: {}",
+                            sql.endpoint, runs.count, runs.binds.size(), shape);
+                }else{
+                    log.warn("{} ran the same statement {} times with the same binds: {}", sql.endpoint, runs.count, shape);
+                }
+            }
+        });
+        log.debug("{}: {} statements", sql.endpoint, sql.statements);
+    }
+
+    // the sql hibernate generated with whitespace collapsed and in-lists of any length as one, binds are ? already
+    static String shape(String query){
+        String collapsed = WHITESPACE.matcher(query.trim()).replaceAll(" ");
+        return IN_LIST.matcher(collapsed).replaceAll("(?)");
+    }
+
+    // #hash of the bind values, one per parameter set; "-" for statements without binds
+    static String fingerprint(QueryInfo query){
+        List<List<ParameterSetOperation>> parameterSets = query.getParametersList();
+        if(parameterSets.isEmpty() || parameterSets.get(0).isEmpty()){
+            return "-";
+        }
+        List<String> fingerprints = new ArrayList<>(Math.min(parameterSets.size(), 3));
+        for(List<ParameterSetOperation> parameters : parameterSets){
+            if(fingerprints.size() == 3){
+                fingerprints.add("... " + parameterSets.size() + " sets");   //a jdbc batch
+                break;
+            }
+            List<Object> values = new ArrayList<>(parameters.size());
+            for(ParameterSetOperation parameter : parameters){
+                Object[] args = parameter.getArgs();   //index, value, (type)
+                values.add(args.length > 1 ? args[1] : null);
+            }
+            fingerprints.add(String.format("#%08x", Arrays.deepHashCode(values.toArray())));   //deep: byte[] binds by content
+        }
+        return String.join(" ", fingerprints);
+    }
+
+
+    private static class RequestSql {
+
+        private final String endpoint;
+        private final int budget;   //-1: none declared
+        private final Map<String, Runs> shapes = new HashMap<>();
+        private int statements;
+
+        RequestSql(String endpoint, int budget){
+            this.endpoint=endpoint;
+            this.budget=budget;
+        }
+
+        void record(String shape, String fingerprint){
+            Runs runs = shapes.computeIfAbsent(shape, s -> new Runs());
+            runs.count++;
+            runs.binds.add(fingerprint);
+        }
+    }
+
+    private static class Runs {
+
+        private int count;
+        private final Set<String> binds = new HashSet<>();
+    }
+}
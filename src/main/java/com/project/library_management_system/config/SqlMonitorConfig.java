@@ -0,0 +1,55 @@
+package com.project.library_management_system.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+// puts SqlMonitor between hibernate and the pool and in front of every handler.
+// the pool itself stays reachable through unwrap(), for the hikari metrics and DatastoreSelfCheck
+@Configuration
+public class SqlMonitorConfig implements WebMvcConfigurer {
+
+    private SqlMonitor sqlMonitor;
+
+    public SqlMonitorConfig(SqlMonitor sqlMonitor){
+        this.sqlMonitor=sqlMonitor;
+    }
+
+    @Bean
+    public static SqlMonitor sqlMonitor(@Value("${sql.monitor.slow-threshold:200ms}") Duration slowThreshold,
+                                        @Value("${sql.monitor.repeat-threshold:3}") int repeatThreshold,
+                                        @Value("${sql.monitor.enforce-budgets:false}") boolean enforceBudgets){
+        return new SqlMonitor(slowThreshold, repeatThreshold, enforceBudgets);
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlMonitorDataSourcePostProcessor(ObjectProvider<SqlMonitor> sqlMonitor){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if(bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)){
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(sqlMonitor.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlMonitor);
+    }
+}
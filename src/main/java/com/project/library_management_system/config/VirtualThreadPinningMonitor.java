@@ -0,0 +1,81 @@
+package com.project.library_management_system.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+// pinning diagnostics of the "virtual" profile: a virtual thread that blocks inside synchronized code (or a native
+// frame) holds on to its carrier thread. the jfr jdk.VirtualThreadPinned event of every pin longer than the threshold
+// is logged with the top of its stack and counted, without a jvm flag (-Djdk.tracePinnedThreads) to remember
+@Component
+@Profile("virtual")
+public class VirtualThreadPinningMonitor implements DisposableBean, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final int LOGGED_FRAMES = 8;
+
+    private final AtomicLong pinned = new AtomicLong();
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(@Value("${threads.virtual.pinned-threshold:20ms}") Duration threshold){
+        this.recording=new RecordingStream();
+        this.recording.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        this.recording.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        this.recording.startAsync();
+        log.info("Virtual thread pinning is logged above {} ms", threshold.toMillis());
+    }
+
+    long pinnedCount(){
+        return pinned.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jvm.threads.virtual.pinned", pinned, AtomicLong::get)
+                .description("virtual threads that blocked while pinned to their carrier thread, above the threshold")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        recording.close();
+    }
+
+
+    private void onPinned(RecordedEvent event){
+        pinned.incrementAndGet();
+        String stack = event.getStackTrace() == null ? "-" : event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::frame)
+                .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+        log.warn("Virtual thread {} pinned its carrier for {} ms{}", thread(event), event.getDuration().toMillis(), stack);
+    }
+
+    //virtual threads are mostly unnamed, the id tells them apart
+    private static String thread(RecordedEvent event){
+        if(event.getThread() == null){
+            return "?";
+        }
+        String name = event.getThread().getJavaName();
+        return "#" + event.getThread().getJavaThreadId() + (name == null || name.isEmpty() ? "" : " " + name);
+    }
+
+    private static String frame(RecordedFrame frame){
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
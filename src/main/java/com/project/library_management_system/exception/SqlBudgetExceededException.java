@@ -0,0 +1,9 @@
+package com.project.library_management_system.exception;
+
+// an endpoint ran more statements than its @SqlBudget allows, only thrown with sql.monitor.enforce-budgets=true
+public class SqlBudgetExceededException extends IllegalStateException {
+
+    public SqlBudgetExceededException(String message){
+        super(message);
+    }
+}
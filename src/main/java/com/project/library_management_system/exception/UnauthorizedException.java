@@ -0,0 +1,12 @@
+package com.project.library_management_system.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class UnauthorizedException extends RuntimeException {
+    
+    public UnauthorizedException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,62 @@
+package com.project.library_management_system.loan;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// where an incremental job stopped: the (date, id) keyset of the last row it handled.
+// the job moves it forward in the same transaction as the work, so a crash repeats at most one chunk
+@Entity
+@Table(name = "job_checkpoint")
+public class JobCheckpoint {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDate lastDate;
+
+    @Column(nullable = false)
+    private long lastId;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public JobCheckpoint(){
+
+    }
+
+    public JobCheckpoint(String name, LocalDate lastDate, long lastId) {
+        this.name = name;
+        this.lastDate = lastDate;
+        this.lastId = lastId;
+        this.updatedAt = Instant.now();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDate getLastDate() {
+        return lastDate;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void moveTo(LocalDate lastDate, long lastId) {
+        this.lastDate = lastDate;
+        this.lastId = lastId;
+        this.updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,18 @@
+package com.project.library_management_system.loan;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    //row lock until the chunk commits, a second instance running the same job waits instead of redoing it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from JobCheckpoint c where c.name = :name")
+    public Optional<JobCheckpoint> findForUpdate(@Param("name") String name);
+}
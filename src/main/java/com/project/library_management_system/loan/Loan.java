@@ -13,13 +13,19 @@ import jakarta.validation.constraints.NotNull;
 import com.fasterxml.jackson.annotation.JsonProperty.Access;
 
 @Entity
+@Table(indexes = {   //created by the V1 and V3 migrations
+    @Index(name = "ix_loan_returned_user", columnList = "returned, user_id"),
+    @Index(name = "ix_loan_returned_due", columnList = "returned, due_date"),
+    @Index(name = "ix_loan_user", columnList = "user_id"),
+    @Index(name = "ix_loan_book", columnList = "book_id")
+})
 public class Loan {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @OneToOne
+    @ManyToOne   //a book is loaned many times over its life, only one loan at a time is active
     @JsonProperty(access = Access.WRITE_ONLY)
     private Book book;
 
@@ -29,6 +35,7 @@ public class Loan {
     
 
     private LocalDate loanDate;
+    private LocalDate dueDate;   //overdue once it is in the past and the loan is still active
     private LocalDate returnDate;
 
     @NotNull
@@ -54,6 +61,7 @@ public class Loan {
         this.book = loan.getBook();
         this.user = loan.getUser();
         this.loanDate = loan.getLoanDate();
+        this.dueDate = loan.getDueDate();
         this.returnDate = loan.getReturnDate();
         this.returned = loan.isReturned();
     }
@@ -99,6 +107,16 @@ public class Loan {
     }
 
 
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+
+    public void setDueDate(LocalDate dueDate) {
+        this.dueDate = dueDate;
+    }
+
+
     public LocalDate getReturnDate() {
         return returnDate;
     }
@@ -0,0 +1,29 @@
+package com.project.library_management_system.loan;
+
+import java.time.LocalDate;
+
+// published by LoanService when a loan is created, deleted or moved to another day, book or user: the buckets it
+// counted in before and after (null for a loan that did not exist). LoanRollup moves the daily counts with it
+public record LoanChangedEvent(Bucket before, Bucket after) {
+
+    public record Bucket(LocalDate loanDate, Long bookId, Long userId) {
+
+        static Bucket of(Loan loan){
+            return new Bucket(loan.getLoanDate(),
+                    loan.getBook() == null ? null : loan.getBook().getId(),
+                    loan.getUser() == null ? null : loan.getUser().getId());
+        }
+    }
+
+    public static LoanChangedEvent created(Loan loan){
+        return new LoanChangedEvent(null, Bucket.of(loan));
+    }
+
+    public static LoanChangedEvent deleted(Loan loan){
+        return new LoanChangedEvent(Bucket.of(loan), null);
+    }
+
+    public boolean movesCounts(){
+        return before == null || !before.equals(after);
+    }
+}
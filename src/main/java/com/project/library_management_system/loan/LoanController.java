@@ -6,6 +6,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,10 +21,9 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.project.library_management_system.book.Book;
 import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.config.SqlBudget;
 import com.project.library_management_system.exception.NotFoundException;
-import com.project.library_management_system.user.User;
 import com.project.library_management_system.user.UserRepository;
 
 import jakarta.validation.Valid;
@@ -37,17 +37,21 @@ public class LoanController {
     private BookRepository bookRepository;
     private UserRepository userRepository;
     private LoanRepository loanRepository;
+    private LoanService loanService;
 
-    public LoanController(BookRepository bookRepository, UserRepository userRepository, LoanRepository loanRepository){
+    public LoanController(BookRepository bookRepository, UserRepository userRepository, LoanRepository loanRepository,
+                          LoanService loanService){
         this.bookRepository=bookRepository;
         this.userRepository=userRepository;
         this.loanRepository=loanRepository;
+        this.loanService=loanService;
     }
 
 
     @GetMapping
-    public List<Loan> findAllLoans(){
-        List<Loan> loans = loanRepository.findAll();
+    @SqlBudget(1)
+    public List<LoanView> findAllLoans(){
+        List<LoanView> loans = loanRepository.findAllViews();
         if(loans.isEmpty()){
             throw new NotFoundException("Loans are not found");
         }
@@ -56,10 +60,11 @@ public class LoanController {
     }
 
     @GetMapping("/{id}")
+    @SqlBudget(1)
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    @PostAuthorize("hasRole('ADMIN') or returnObject.user.email == authentication.name")
-    public Loan findById(@PathVariable Long id){
-        Optional<Loan> optional = loanRepository.findById(id);
+    @PostAuthorize("hasRole('ADMIN') or returnObject.userEmail == authentication.name")
+    public LoanView findById(@PathVariable Long id){
+        Optional<LoanView> optional = loanRepository.findViewById(id);
         if(optional.isEmpty()){
             // If this throws, PostAuthorize is skipped (which is good/secure)
             throw new NotFoundException("Loan doesn't exist");
@@ -69,83 +74,73 @@ public class LoanController {
     }
 
     @GetMapping("/by-userId")
-    public List<Loan> findByUserId(@RequestParam Long id){
-        Optional<User> user = userRepository.findById(id);
-        if(user.isEmpty()){
+    @SqlBudget(2)   //the existence check runs only when the user has no loans
+    public List<LoanView> findByUserId(@RequestParam Long id){
+        List<LoanView> loans = loanRepository.findViewsByUserId(id);
+        //the user lookup is only needed to tell "no loans" apart from "no user"
+        if(loans.isEmpty() && !userRepository.existsById(id)){
             throw new NotFoundException("User doesn't exists");
         }
-        return user.get().getLoans();
+        return loans;
     }
 
     @GetMapping("by-userEmail")
-    public List<Loan> findByUserEmail(@RequestParam String email){
-        Optional<User> user = userRepository.findByEmail(email);
-        if(user.isEmpty()){
+    @SqlBudget(2)   //the existence check runs only when the user has no loans
+    public List<LoanView> findByUserEmail(@RequestParam String email){
+        List<LoanView> loans = loanRepository.findViewsByUserEmail(email);
+        if(loans.isEmpty() && !userRepository.existsByEmail(email)){
             throw new NotFoundException("User doesn't exist");
         }
-        return user.get().getLoans();
+        return loans;
     }
 
 
     @GetMapping("/by-bookId")
-    public Loan findByBookId(@RequestParam Long id){
-        Optional<Book> optional = bookRepository.findById(id);
-        if(optional.isEmpty()){
+    @SqlBudget(2)
+    public LoanView findByBookId(@RequestParam Long id){
+        if(!bookRepository.existsById(id)){
             throw new NotFoundException("Book does not exist in library");
         }
-        return optional.get().getLoan();
+        return loanRepository.findLatestViewsByBookId(id, Limit.of(1)).stream().findFirst().orElse(null);
     }
 
     @GetMapping("/returned")
-    public List<Loan> getReturnedLoans() {
-           return loanRepository.findAllByReturned(true);
+    @SqlBudget(1)
+    public List<LoanView> getReturnedLoans() {
+           return loanRepository.findViewsByReturned(true);
     }
 
     @GetMapping("/active")
-    public List<Loan> getActiveLoans() {
-           return loanRepository.findAllByReturned(false);
+    @SqlBudget(1)
+    public List<LoanView> getActiveLoans() {
+           return loanRepository.findViewsByReturned(false);
+    }
+
+    // active loans past their due date, most overdue first
+    @GetMapping("/overdue")
+    @SqlBudget(1)
+    public List<LoanView> getOverdueLoans() {
+        return loanRepository.findOverdueViews(LocalDate.now());
     }
 
     
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
     public void createLoan(@RequestParam Long userId, @RequestParam Long bookId){
-        User user = userRepository.findById(userId)
-                   .orElseThrow(() -> new NotFoundException("User not found"));
-        Book book = bookRepository.findById(bookId)
-                   .orElseThrow(() -> new NotFoundException("Book not found"));
-
-        Loan loan = new Loan();
-        loan.setBook(book);
-        loan.setUser(user);
-        loan.setLoanDate(LocalDate.now());
-        loan.setReturned(false);
-
-        loanRepository.save(loan);
+        loanService.checkout(userId, bookId);
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @PutMapping("/{id}")
     public void update(@RequestBody @Valid Loan updatedLoan, @PathVariable Long id){
-        Loan loan = loanRepository.findById(id)
-             .map(existingLoan->{
-                existingLoan.setBook(updatedLoan.getBook());
-                existingLoan.setLoanDate(updatedLoan.getLoanDate());
-                existingLoan.setReturnDate(updatedLoan.getReturnDate());
-                existingLoan.setReturned(updatedLoan.isReturned());
-                existingLoan.setUser(existingLoan.getUser());
-
-                return existingLoan;
-             }).orElseThrow(()-> new NotFoundException("The loan does not exist"));
-
-        loanRepository.save(loan);
+        loanService.update(id, updatedLoan);
     }  
     
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id){
-         loanRepository.deleteById(id);
+         loanService.delete(id);
     }
 
 
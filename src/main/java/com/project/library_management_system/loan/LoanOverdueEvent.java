@@ -0,0 +1,12 @@
+package com.project.library_management_system.loan;
+
+import java.time.LocalDate;
+
+// published once per loan by OverdueLoanScanner when an active loan is past its due date.
+// a @TransactionalEventListener gets it after the chunk it was found in (and the checkpoint past it) committed
+public record LoanOverdueEvent(Long loanId, Long bookId, Long userId, LocalDate dueDate) {
+
+    public static LoanOverdueEvent of(LoanView loan){
+        return new LoanOverdueEvent(loan.id(), loan.bookId(), loan.userId(), loan.dueDate());
+    }
+}
@@ -1,9 +1,52 @@
 package com.project.library_management_system.loan;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
-        List<Loan> findAllByReturned(boolean returned);
+        //read side of the api: book and user by id (the foreign key columns), the user is joined for its email only
+        String VIEW = "select new com.project.library_management_system.loan.LoanView("
+                + "l.id, l.loanDate, l.dueDate, l.returnDate, l.returned, l.book.id, u.id, u.email) from Loan l left join l.user u ";
+
+        @Query(VIEW + "order by l.id")
+        List<LoanView> findAllViews();
+
+        @Query(VIEW + "where l.id = :id")
+        Optional<LoanView> findViewById(@Param("id") Long id);
+
+        @Query(VIEW + "where u.id = :userId order by l.id")
+        List<LoanView> findViewsByUserId(@Param("userId") Long userId);
+
+        @Query(VIEW + "where u.email = :email order by l.id")
+        List<LoanView> findViewsByUserEmail(@Param("email") String email);
+
+        //seeks on ix_loan_returned_user, which would hand the rows back grouped by user; keep them in id order.
+        //(V1 names the entity queries these views replaced: findAllByReturned/ByUserId, findLatestByBookId)
+        @Query(VIEW + "where l.returned = :returned order by l.id")
+        List<LoanView> findViewsByReturned(@Param("returned") boolean returned);
+
+        @Query(VIEW + "where l.book.id = :bookId order by l.returned, l.loanDate desc, l.id desc")
+        List<LoanView> findLatestViewsByBookId(@Param("bookId") Long bookId, Limit limit);
+
+        //active loans due before today, a range seek on ix_loan_returned_due
+        @Query(VIEW + "where l.returned = false and l.dueDate < :today order by l.dueDate, l.id")
+        List<LoanView> findOverdueViews(@Param("today") LocalDate today);
+
+        //the overdue scanner's next chunk: overdue loans after the keyset (afterDate, afterId) in (dueDate, id) order.
+        //the >= keeps the seek a range on due_date, the or only filters within its first day
+        @Query(VIEW + "where l.returned = false and l.dueDate < :today and l.dueDate >= :afterDate "
+                + "and (l.dueDate > :afterDate or l.id > :afterId) order by l.dueDate, l.id")
+        List<LoanView> findOverdueViewsAfter(@Param("today") LocalDate today, @Param("afterDate") LocalDate afterDate,
+                                             @Param("afterId") long afterId, Limit limit);
+
+        //a book has few loans, the seek on ix_loan_book is filtered by user and state
+        @Query("select count(l) > 0 from Loan l where l.book.id = :bookId and l.user.id = :userId and l.returned = :returned")
+        boolean existsByBookAndUser(@Param("bookId") Long bookId, @Param("userId") Long userId,
+                                    @Param("returned") boolean returned);
 }
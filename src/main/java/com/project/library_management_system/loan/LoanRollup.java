@@ -0,0 +1,224 @@
+package com.project.library_management_system.loan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+
+// the loan_daily rollup: loans started per day, overall, per book and per user, read by LoanStats.
+// every LoanChangedEvent moves its counts (-1 on the buckets the loan left, +1 on those it entered) in the loan's
+// own transaction right before it commits, so the rollup and the loan table commit or roll back together.
+// the buckets are upserted in primary key order, two transactions touching the same ones lock them in the same order,
+// and after the pending entity changes are flushed, so a transaction takes its book/loan row locks before these.
+// at the first start without a 'loan-rollup' checkpoint the rollup is rebuilt from the loan table: slices of the id
+// range are counted in parallel on a fork-join pool and merged, then written in one transaction with the checkpoint.
+// that runs while the context starts, before the web server and the schedulers hand it any loan change
+@Component
+public class LoanRollup implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanRollup.class);
+
+    static final String JOB = "loan-rollup";
+    static final String ALL = "ALL";
+    static final String BOOK = "BOOK";
+    static final String USER = "USER";
+
+    //a bucket that drops to 0 is deleted, a count never goes below 0
+    private static final String ADD =
+            "merge into loan_daily d " +
+            "using (values (cast(? as varchar(8)), cast(? as bigint), cast(? as date), cast(? as bigint))) " +
+            "v(scope, scope_id, loan_day, delta) " +
+            "on d.scope = v.scope and d.scope_id = v.scope_id and d.loan_day = v.loan_day " +
+            "when matched and d.loans + v.delta <= 0 then delete " +
+            "when matched then update set loans = d.loans + v.delta " +
+            "when not matched and v.delta > 0 then insert (scope, scope_id, loan_day, loans) " +
+            "values (v.scope, v.scope_id, v.loan_day, v.delta)";
+
+    private static final String INSERT = "insert into loan_daily (scope, scope_id, loan_day, loans) values (?, ?, ?, ?)";
+
+    private static final String COUNT_SLICE =
+            "select loan_date, book_id, user_id, count(*) from loan " +
+            "where id >= ? and id < ? and loan_date is not null group by loan_date, book_id, user_id";
+
+    private static final int INSERT_BATCH = 1000;
+
+    private JdbcTemplate jdbcTemplate;
+    private EntityManager entityManager;
+    private JobCheckpointRepository checkpointRepository;
+    private TransactionTemplate transactionTemplate;
+    private long sliceSize;
+    private int parallelism;
+
+    public LoanRollup(JdbcTemplate jdbcTemplate, EntityManager entityManager, JobCheckpointRepository checkpointRepository,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${loans.rollup.backfill-slice:50000}") long sliceSize,
+                      @Value("${loans.rollup.backfill-parallelism:4}") int parallelism){
+        this.jdbcTemplate=jdbcTemplate;
+        this.entityManager=entityManager;
+        this.checkpointRepository=checkpointRepository;
+        this.transactionTemplate=new TransactionTemplate(transactionManager);
+        this.sliceSize=Math.max(sliceSize, 1);
+        this.parallelism=Math.max(parallelism, 1);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated(){
+        if(checkpointRepository.existsById(JOB)){
+            return;
+        }
+        try{
+            rebuild();
+        }catch(RuntimeException e){
+            //the stats stay incomplete, the next start tries again
+            log.error("Loan rollup backfill failed", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event){
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            entityManager.flush();
+        }
+        Map<Key, Long> deltas = new TreeMap<>();
+        keys(event.before()).forEach(key -> deltas.merge(key, -1L, Long::sum));
+        keys(event.after()).forEach(key -> deltas.merge(key, 1L, Long::sum));
+        deltas.forEach((key, delta) -> {
+            if(delta != 0){
+                add(key, delta);
+            }
+        });
+    }
+
+    // recounts the whole rollup from the loan table and replaces it, returns the number of buckets.
+    // a loan change committed between the count and the write would be lost, so not while requests are served
+    public int rebuild(){
+        long started = System.nanoTime();
+        long[] ids = jdbcTemplate.queryForObject("select coalesce(min(id), 0), coalesce(max(id), -1) from loan",
+                (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2)});
+
+        Map<Key, Long> counts;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try{
+            counts = pool.invoke(new Slice(ids[0], ids[1] + 1));
+        }finally{
+            pool.shutdown();
+        }
+
+        List<Map.Entry<Key, Long>> rows = new ArrayList<>(counts.entrySet());
+        rows.sort(Map.Entry.comparingByKey());
+        transactionTemplate.executeWithoutResult(status -> {
+            JobCheckpoint checkpoint = checkpointRepository.findForUpdate(JOB)
+                    .orElseGet(() -> checkpointRepository.save(new JobCheckpoint(JOB, LocalDate.now(), 0)));
+            jdbcTemplate.update("delete from loan_daily");
+            jdbcTemplate.batchUpdate(INSERT, rows, INSERT_BATCH, (ps, row) -> {
+                ps.setString(1, row.getKey().scope());
+                ps.setLong(2, row.getKey().scopeId());
+                ps.setObject(3, row.getKey().day());
+                ps.setLong(4, row.getValue());
+            });
+            checkpoint.moveTo(LocalDate.now(), Math.max(ids[1], 0));   //the loans it counted, by id
+        });
+
+        log.info("Loan rollup rebuilt: {} bucket(s) from loan ids {}..{} in {} ms", rows.size(), ids[0], ids[1],
+                (System.nanoTime() - started) / 1_000_000);
+        return rows.size();
+    }
+
+
+    private void add(Key key, long delta){
+        try{
+            jdbcTemplate.update(ADD, key.scope(), key.scopeId(), key.day(), delta);
+        }catch(DuplicateKeyException e){
+            //a concurrent transaction created the same bucket first, now it is there to update
+            jdbcTemplate.update(ADD, key.scope(), key.scopeId(), key.day(), delta);
+        }
+    }
+
+    private static List<Key> keys(LoanChangedEvent.Bucket bucket){
+        if(bucket == null || bucket.loanDate() == null){
+            return List.of();
+        }
+        List<Key> keys = new ArrayList<>(3);
+        keys.add(new Key(ALL, 0, bucket.loanDate()));
+        if(bucket.bookId() != null){
+            keys.add(new Key(BOOK, bucket.bookId(), bucket.loanDate()));
+        }
+        if(bucket.userId() != null){
+            keys.add(new Key(USER, bucket.userId(), bucket.loanDate()));
+        }
+        return keys;
+    }
+
+    // one loan_daily row, ordered like the primary key
+    record Key(String scope, long scopeId, LocalDate day) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::scope)
+                .thenComparingLong(Key::scopeId)
+                .thenComparing(Key::day);
+
+        @Override
+        public int compareTo(Key other){
+            return ORDER.compare(this, other);
+        }
+    }
+
+    // the buckets of the loans with ids in [from, to): halved until a slice is one grouped select
+    private final class Slice extends RecursiveTask<Map<Key, Long>> {
+
+        private final long from;
+        private final long to;
+
+        Slice(long from, long to){
+            this.from=from;
+            this.to=to;
+        }
+
+        @Override
+        protected Map<Key, Long> compute(){
+            if(to - from <= sliceSize){
+                return count();
+            }
+            long middle = from + (to - from) / 2;
+            Slice left = new Slice(from, middle);
+            left.fork();
+            Map<Key, Long> right = new Slice(middle, to).compute();
+            Map<Key, Long> merged = left.join();
+            right.forEach((key, loans) -> merged.merge(key, loans, Long::sum));
+            return merged;
+        }
+
+        private Map<Key, Long> count(){
+            Map<Key, Long> counts = new HashMap<>();
+            if(from >= to){
+                return counts;
+            }
+            jdbcTemplate.query(COUNT_SLICE, rs -> {
+                LoanChangedEvent.Bucket bucket = new LoanChangedEvent.Bucket(rs.getObject(1, LocalDate.class),
+                        rs.getObject(2, Long.class), rs.getObject(3, Long.class));
+                long loans = rs.getLong(4);
+                keys(bucket).forEach(key -> counts.merge(key, loans, Long::sum));
+            }, from, to);
+            return counts;
+        }
+    }
+}
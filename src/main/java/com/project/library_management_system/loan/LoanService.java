@@ -0,0 +1,176 @@
+package com.project.library_management_system.loan;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookChangedEvent;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.exception.ConflictException;
+import com.project.library_management_system.exception.NotFoundException;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+
+// loan state changes and the book availability flag they imply, in one transaction.
+// every flip is published as a BookChangedEvent, listeners get it after the commit.
+// a book given back while patrons wait for it is not released but lent to the first of them (ReservationService).
+// a loan that is created, deleted (also along with its book) or moved to another day/book/user is also published as a LoanChangedEvent
+@Service
+public class LoanService {
+
+    private BookRepository bookRepository;
+    private UserRepository userRepository;
+    private LoanRepository loanRepository;
+    private ReservationService reservationService;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+    private Duration loanPeriod;
+
+    private static final int CHECKOUT_ATTEMPTS = 3;
+
+    public LoanService(BookRepository bookRepository, UserRepository userRepository, LoanRepository loanRepository,
+                       ReservationService reservationService, ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                       @Value("${loans.loan-period:14d}") Duration loanPeriod){
+        this.bookRepository=bookRepository;
+        this.userRepository=userRepository;
+        this.loanRepository=loanRepository;
+        this.reservationService=reservationService;
+        this.eventPublisher=eventPublisher;
+        this.transactionTemplate=new TransactionTemplate(transactionManager);
+        this.loanPeriod=loanPeriod;
+    }
+
+    // the book is reserved by a conditional update before anything is written,
+    // so of two racing checkouts one gets the book and the other a 409, never two active loans.
+    // a lock wait that times out under heavy contention is retried a few times in a fresh transaction
+    public Loan checkout(Long userId, Long bookId){
+        for(int attempt = 1; ; attempt++){
+            try{
+                return transactionTemplate.execute(status -> checkoutOnce(userId, bookId));
+            }catch(PessimisticLockingFailureException e){
+                if(attempt >= CHECKOUT_ATTEMPTS){
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Loan checkoutOnce(Long userId, Long bookId){
+        User user = userRepository.findById(userId)
+                   .orElseThrow(() -> new NotFoundException("User not found"));
+        reserve(bookId);
+        Book book = bookRepository.findById(bookId)       //read after the update, so it already says on loan
+                   .orElseThrow(() -> new NotFoundException("Book not found"));
+
+        Loan saved = lend(book, user);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        return saved;
+    }
+
+    @Transactional
+    public Loan update(Long id, Loan updatedLoan){
+        Loan loan = loanRepository.findById(id)
+                .orElseThrow(()-> new NotFoundException("The loan does not exist"));
+
+        Book previousBook = loan.getBook();
+        boolean wasActive = !loan.isReturned();
+        LoanChangedEvent.Bucket previousBucket = LoanChangedEvent.Bucket.of(loan);
+
+        //book is write-only in the json, a body without it keeps the current one
+        if(updatedLoan.getBook() != null){
+            loan.setBook(bookRepository.findById(updatedLoan.getBook().getId())
+                    .orElseThrow(() -> new NotFoundException("Book not found")));
+        }
+        loan.setLoanDate(updatedLoan.getLoanDate());
+        if(updatedLoan.getDueDate() != null){   //an extension; a body without it keeps the current one
+            loan.setDueDate(updatedLoan.getDueDate());
+        }
+        loan.setReturnDate(updatedLoan.getReturnDate());
+        loan.setReturned(updatedLoan.isReturned());
+
+        Loan saved = loanRepository.save(loan);
+
+        //give back what the loan held before unless it still holds it, then take what it holds now
+        boolean stillHeld = wasActive && !loan.isReturned() && loan.getBook() == previousBook;
+        if(wasActive && previousBook != null && !stillHeld){
+            release(previousBook);
+        }
+        if(!loan.isReturned() && loan.getBook() != null && !stillHeld){
+            reserve(loan.getBook().getId());
+            loan.getBook().setAvailable(false);   //keep the managed entity in line with the row
+            eventPublisher.publishEvent(BookChangedEvent.saved(loan.getBook()));
+        }
+
+        LoanChangedEvent changed = new LoanChangedEvent(previousBucket, LoanChangedEvent.Bucket.of(loan));
+        if(changed.movesCounts()){
+            eventPublisher.publishEvent(changed);
+        }
+        return saved;
+    }
+
+    @Transactional
+    public void delete(Long id){
+        loanRepository.findById(id).ifPresent(loan -> {
+            if(!loan.isReturned() && loan.getBook() != null){
+                release(loan.getBook());
+            }
+            loanRepository.delete(loan);
+            eventPublisher.publishEvent(LoanChangedEvent.deleted(loan));
+        });
+    }
+
+    // a deleted book takes its loans and its queue with it (Book.loans cascades, reservations on delete cascade).
+    // each loan leaves the rollup like a deleted one, so the stats and LoanRollup.rebuild() keep agreeing
+    @Transactional
+    public void deleteBook(Long bookId){
+        bookRepository.findById(bookId).ifPresent(book -> {
+            book.getLoans().forEach(loan -> eventPublisher.publishEvent(LoanChangedEvent.deleted(loan)));
+            bookRepository.delete(book);
+        });
+    }
+
+
+    private void reserve(Long bookId){
+        if(bookRepository.reserve(bookId) == 0){
+            if(!bookRepository.existsById(bookId)){
+                throw new NotFoundException("Book not found");
+            }
+            throw new ConflictException("Book is already on loan");
+        }
+    }
+
+    private Loan lend(Book book, User user){
+        Loan loan = new Loan();
+        loan.setBook(book);
+        loan.setUser(user);
+        loan.setLoanDate(LocalDate.now());
+        loan.setDueDate(loan.getLoanDate().plusDays(loanPeriod.toDays()));
+        loan.setReturned(false);
+
+        Loan saved = loanRepository.save(loan);
+        eventPublisher.publishEvent(LoanChangedEvent.created(saved));
+        return saved;
+    }
+
+    // the book goes to the head of its queue when someone waits for it (it stays on loan), else back on the shelf
+    private void release(Book book){
+        Optional<Reservation> next = reservationService.next(book.getId());
+        if(next.isPresent()){
+            lend(book, next.get().getUser());
+            return;
+        }
+        if(!book.isAvailable()){
+            book.setAvailable(true);
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        }
+    }
+}
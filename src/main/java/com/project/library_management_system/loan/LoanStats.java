@@ -0,0 +1,86 @@
+package com.project.library_management_system.loan;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// ranged reads of the loan_daily rollup (see LoanRollup) for /api/loans/stats. every answer is one select over
+// the buckets of the range, whatever the size of the loan table. a borrower is a user with a loan started
+// in the period, counted once however many loans they took
+@Component
+public class LoanStats {
+
+    public record Period(LocalDate start, long loans, long borrowers) {}
+
+    public record TopBook(Long bookId, String title, long loans) {}
+
+    public record Summary(LocalDate from, LocalDate to, long loans, long borrowers) {}
+
+    private static final String PERIODS =
+            "select %s as bucket_start, " +
+            "coalesce(sum(case when scope = 'ALL' then loans end), 0), " +
+            "count(distinct case when scope = 'USER' then scope_id end) " +
+            "from loan_daily where scope in ('ALL', 'USER') and loan_day between ? and ? group by bucket_start";
+
+    //the book row is joined to the top ones only. a deleted book took its loans and their counts with it (LoanService.deleteBook)
+    private static final String TOP_BOOKS =
+            "select t.book_id, b.title, t.loans from (" +
+            "select scope_id as book_id, sum(loans) as loans from loan_daily " +
+            "where scope = 'BOOK' and loan_day between ? and ? " +
+            "group by scope_id order by loans desc, scope_id limit ?" +
+            ") t left join book b on b.id = t.book_id order by t.loans desc, t.book_id";
+
+    private static final String SUMMARY =
+            "select coalesce(sum(case when scope = 'ALL' then loans end), 0), " +
+            "count(distinct case when scope = 'USER' then scope_id end) " +
+            "from loan_daily where scope in ('ALL', 'USER') and loan_day between ? and ?";
+
+    private JdbcTemplate jdbcTemplate;
+
+    public LoanStats(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate=jdbcTemplate;
+    }
+
+    // one entry per day of [from, to], days without loans included
+    public List<Period> daily(LocalDate from, LocalDate to){
+        return periods("loan_day", from, to, 1);
+    }
+
+    // one entry per week (monday to sunday) overlapping [from, to], the whole weeks are counted
+    public List<Period> weekly(LocalDate from, LocalDate to){
+        return periods("date_trunc('ISO_WEEK', loan_day)", from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                to.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)), 7);
+    }
+
+    public List<TopBook> topBooks(LocalDate from, LocalDate to, int limit){
+        return jdbcTemplate.query(TOP_BOOKS, (rs, row) -> new TopBook(rs.getLong(1), rs.getString(2), rs.getLong(3)),
+                from, to, limit);
+    }
+
+    public Summary summary(LocalDate from, LocalDate to){
+        return jdbcTemplate.queryForObject(SUMMARY, (rs, row) -> new Summary(from, to, rs.getLong(1), rs.getLong(2)),
+                from, to);
+    }
+
+
+    private List<Period> periods(String period, LocalDate from, LocalDate to, int days){
+        Map<LocalDate, Period> found = new HashMap<>();
+        jdbcTemplate.query(PERIODS.formatted(period), rs -> {
+            LocalDate start = rs.getObject(1, LocalDate.class);
+            found.put(start, new Period(start, rs.getLong(2), rs.getLong(3)));
+        }, from, to);
+
+        List<Period> periods = new ArrayList<>();
+        for(LocalDate start = from; !start.isAfter(to); start = start.plusDays(days)){
+            periods.add(found.getOrDefault(start, new Period(start, 0, 0)));
+        }
+        return periods;
+    }
+}
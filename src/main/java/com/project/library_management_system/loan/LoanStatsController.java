@@ -0,0 +1,84 @@
+package com.project.library_management_system.loan;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.project.library_management_system.config.SqlBudget;
+import com.project.library_management_system.exception.BadRequestException;
+
+// loan statistics for the librarians, answered from the daily rollup. from/to are inclusive iso dates,
+// without them the last 30 days up to today
+@RestController
+@RequestMapping("/api/loans/stats")
+@PreAuthorize("hasRole('ADMIN')")
+public class LoanStatsController {
+
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_TOP_BOOKS = 100;
+
+    private LoanStats loanStats;
+    private Duration maxRange;
+
+    public LoanStatsController(LoanStats loanStats, @Value("${loans.stats.max-range:1830d}") Duration maxRange){
+        this.loanStats=loanStats;
+        this.maxRange=maxRange;
+    }
+
+    @GetMapping("/summary")
+    @SqlBudget(1)
+    public LoanStats.Summary summary(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        Range range = range(from, to);
+        return loanStats.summary(range.from(), range.to());
+    }
+
+    @GetMapping("/daily")
+    @SqlBudget(1)
+    public List<LoanStats.Period> daily(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        Range range = range(from, to);
+        return loanStats.daily(range.from(), range.to());
+    }
+
+    @GetMapping("/weekly")
+    @SqlBudget(1)
+    public List<LoanStats.Period> weekly(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        Range range = range(from, to);
+        return loanStats.weekly(range.from(), range.to());
+    }
+
+    // most borrowed books of the range, most loans first
+    @GetMapping("/top-books")
+    @SqlBudget(1)
+    public List<LoanStats.TopBook> topBooks(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(defaultValue = "10") int limit){
+        Range range = range(from, to);
+        return loanStats.topBooks(range.from(), range.to(), Math.clamp(limit, 1, MAX_TOP_BOOKS));
+    }
+
+
+    private Range range(LocalDate from, LocalDate to){
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if(start.isAfter(end)){
+            throw new BadRequestException("from must not be after to");
+        }
+        if(start.plusDays(maxRange.toDays()).isBefore(end)){
+            throw new BadRequestException("The range is limited to " + maxRange.toDays() + " days");
+        }
+        return new Range(start, end);
+    }
+
+    private record Range(LocalDate from, LocalDate to) {}
+}
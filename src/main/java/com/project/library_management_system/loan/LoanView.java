@@ -0,0 +1,14 @@
+package com.project.library_management_system.loan;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+
+
+// flat read-only row of a loan, book and user only by id so nothing is loaded behind them.
+// the email of the borrower is there for the ownership check of GET /api/loans/{id}, it is not serialized
+public record LoanView(Long id, LocalDate loanDate, LocalDate dueDate, LocalDate returnDate, boolean returned, Long bookId,
+                       Long userId, @JsonIgnore String userEmail) {
+
+}
@@ -0,0 +1,80 @@
+package com.project.library_management_system.loan;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// publishes a LoanOverdueEvent for every active loan once it is past its due date. a run only reads the loans
+// that became overdue since the previous one: it walks ix_loan_returned_due in (dueDate, id) order from the
+// job_checkpoint row, a chunk at a time, each chunk with its events and the moved checkpoint in one transaction.
+// a loan whose due date is moved behind the checkpoint afterwards (backdated by hand) is not picked up again
+@Component
+public class OverdueLoanScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueLoanScanner.class);
+
+    static final String JOB = "overdue-loans";
+    private static final LocalDate BEGINNING = LocalDate.EPOCH;   //first run: everything overdue so far
+
+    private LoanRepository loanRepository;
+    private JobCheckpointRepository checkpointRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+    private int chunkSize;
+
+    public OverdueLoanScanner(LoanRepository loanRepository, JobCheckpointRepository checkpointRepository,
+                              ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                              @Value("${loans.overdue.chunk-size:500}") int chunkSize){
+        this.loanRepository=loanRepository;
+        this.checkpointRepository=checkpointRepository;
+        this.eventPublisher=eventPublisher;
+        this.transactionTemplate=new TransactionTemplate(transactionManager);
+        this.chunkSize=chunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${loans.overdue.scan-interval:1h}",
+               initialDelayString = "${loans.overdue.scan-initial-delay:1m}")
+    public void scheduledScan(){
+        scan(LocalDate.now());
+    }
+
+    // loans due before today that no earlier run has seen, returns how many
+    public int scan(LocalDate today){
+        int found = 0;
+        int chunk;
+        do{
+            chunk = transactionTemplate.execute(status -> scanChunk(today));
+            found += chunk;
+        }while(chunk == chunkSize);
+
+        if(found > 0){
+            log.info("{} loan(s) became overdue", found);
+        }
+        return found;
+    }
+
+    private int scanChunk(LocalDate today){
+        JobCheckpoint checkpoint = checkpointRepository.findForUpdate(JOB)
+                .orElseGet(() -> checkpointRepository.save(new JobCheckpoint(JOB, BEGINNING, 0)));
+
+        List<LoanView> loans = loanRepository.findOverdueViewsAfter(today, checkpoint.getLastDate(),
+                checkpoint.getLastId(), Limit.of(chunkSize));
+        if(loans.isEmpty()){
+            return 0;
+        }
+        loans.forEach(loan -> eventPublisher.publishEvent(LoanOverdueEvent.of(loan)));
+
+        LoanView last = loans.get(loans.size() - 1);
+        checkpoint.moveTo(last.dueDate(), last.id());   //written at the commit, with the events released
+        return loans.size();
+    }
+}
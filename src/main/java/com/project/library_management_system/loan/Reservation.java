@@ -0,0 +1,65 @@
+package com.project.library_management_system.loan;
+
+import java.time.Instant;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.user.User;
+
+import jakarta.persistence.*;
+
+// a place in the waiting list of a book that is on loan. ReservationService keeps the positions of a book's
+// queue dense (1, 2, 3, ...) while holding the book row's lock, LoanService hands the book to position 1
+@Entity
+@Table(indexes = {   //created by the V5 migration
+    @Index(name = "ix_reservation_book_position", columnList = "book_id, position"),
+    @Index(name = "ix_reservation_user", columnList = "user_id")
+}, uniqueConstraints = @UniqueConstraint(name = "ux_reservation_book_user", columnNames = {"book_id", "user_id"}))
+public class Reservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private Book book;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private User user;
+
+    @Column(nullable = false)
+    private int position;   //1 is next in line
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public Reservation(){
+
+    }
+
+    public Reservation(Book book, User user, int position) {
+        this.book = book;
+        this.user = user;
+        this.position = position;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,74 @@
+package com.project.library_management_system.loan;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PostAuthorize;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.project.library_management_system.config.SqlBudget;
+import com.project.library_management_system.exception.NotFoundException;
+
+
+@RestController
+@RequestMapping("/api/reservations")
+@PreAuthorize("hasRole('ADMIN')")
+public class ReservationController {
+
+    private ReservationRepository reservationRepository;
+    private ReservationService reservationService;
+
+    public ReservationController(ReservationRepository reservationRepository, ReservationService reservationService){
+        this.reservationRepository=reservationRepository;
+        this.reservationService=reservationService;
+    }
+
+
+    // the place of a reservation in its queue, a lookup by id: positions are kept, not counted
+    @GetMapping("/{id}")
+    @SqlBudget(1)
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    @PostAuthorize("hasRole('ADMIN') or returnObject.userEmail == authentication.name")
+    public ReservationView findById(@PathVariable Long id){
+        Optional<ReservationView> optional = reservationRepository.findViewById(id);
+        if(optional.isEmpty()){
+            throw new NotFoundException("Reservation doesn't exist");
+        }
+        return optional.get();
+    }
+
+    // the queue of a book, next in line first
+    @GetMapping("/by-bookId")
+    @SqlBudget(1)
+    public List<ReservationView> findByBookId(@RequestParam Long id){
+        return reservationRepository.findViewsByBookId(id);
+    }
+
+    @GetMapping("/by-userId")
+    @SqlBudget(1)
+    public List<ReservationView> findByUserId(@RequestParam Long id){
+        return reservationRepository.findViewsByUserId(id);
+    }
+
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping
+    public ReservationView reserve(@RequestParam Long userId, @RequestParam Long bookId){
+        return ReservationView.of(reservationService.join(userId, bookId));
+    }
+
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/{id}")
+    public void cancel(@PathVariable Long id){
+        reservationService.cancel(id);
+    }
+}
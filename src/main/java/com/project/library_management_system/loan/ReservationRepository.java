@@ -0,0 +1,46 @@
+package com.project.library_management_system.loan;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+// the writes below are only made while the book row is locked (BookRepository.findForUpdate), see ReservationService
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    String VIEW = "select new com.project.library_management_system.loan.ReservationView("
+            + "r.id, r.book.id, u.id, r.position, r.createdAt, u.email) from Reservation r join r.user u ";
+
+    @Query(VIEW + "where r.id = :id")
+    Optional<ReservationView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW + "where r.book.id = :bookId order by r.position")
+    List<ReservationView> findViewsByBookId(@Param("bookId") Long bookId);
+
+    @Query(VIEW + "where u.id = :userId order by r.id")
+    List<ReservationView> findViewsByUserId(@Param("userId") Long userId);
+
+    boolean existsByBookIdAndUserId(Long bookId, Long userId);
+
+    //the head of the queue (position 1) and its tail, each one seek on ix_reservation_book_position
+    Optional<Reservation> findByBookIdAndPosition(Long bookId, int position);
+
+    @Query("select coalesce(max(r.position), 0) from Reservation r where r.book.id = :bookId")
+    int findLastPosition(@Param("bookId") Long bookId);
+
+    //read from the row, not from an entity loaded before the lock was taken
+    @Query("select r.position from Reservation r where r.id = :id")
+    Optional<Integer> findPositionById(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Reservation r where r.id = :id")
+    int deleteReservation(@Param("id") Long id);
+
+    //everyone behind a reservation that left the queue moves up one place
+    @Modifying(flushAutomatically = true)
+    @Query("update Reservation r set r.position = r.position - 1 where r.book.id = :bookId and r.position > :position")
+    int moveUp(@Param("bookId") Long bookId, @Param("position") int position);
+}
@@ -0,0 +1,84 @@
+package com.project.library_management_system.loan;
+
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.exception.ConflictException;
+import com.project.library_management_system.exception.NotFoundException;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+
+// first come first served waiting lists for books on loan. every change to the queue of a book is made under
+// that book's row lock, the one LoanService takes before it hands a returned book to the head of the queue:
+// a patron either joins the queue of a book that is still on loan or is told to borrow it, nobody is left
+// waiting behind a book that went back on the shelf. that holds because only LoanService puts a book back
+// (PUT /api/books/{id} leaves the flag alone). the queues of different books never wait for each other
+@Service
+public class ReservationService {
+
+    private BookRepository bookRepository;
+    private UserRepository userRepository;
+    private LoanRepository loanRepository;
+    private ReservationRepository reservationRepository;
+
+    public ReservationService(BookRepository bookRepository, UserRepository userRepository, LoanRepository loanRepository,
+                              ReservationRepository reservationRepository){
+        this.bookRepository=bookRepository;
+        this.userRepository=userRepository;
+        this.loanRepository=loanRepository;
+        this.reservationRepository=reservationRepository;
+    }
+
+    // a place at the end of the queue
+    @Transactional
+    public Reservation join(Long userId, Long bookId){
+        User user = userRepository.findById(userId)
+                   .orElseThrow(() -> new NotFoundException("User not found"));
+        Book book = bookRepository.findForUpdate(bookId)
+                   .orElseThrow(() -> new NotFoundException("Book not found"));
+
+        if(book.isAvailable()){
+            throw new ConflictException("Book is available, it can be borrowed right away");
+        }
+        if(loanRepository.existsByBookAndUser(bookId, userId, false)){
+            throw new ConflictException("User has this book on loan");
+        }
+        if(reservationRepository.existsByBookIdAndUserId(bookId, userId)){
+            throw new ConflictException("User is already waiting for this book");
+        }
+
+        int position = reservationRepository.findLastPosition(bookId) + 1;
+        return reservationRepository.save(new Reservation(book, user, position));
+    }
+
+    @Transactional
+    public void cancel(Long id){
+        reservationRepository.findById(id).ifPresent(reservation -> {
+            Long bookId = reservation.getBook().getId();
+            bookRepository.findForUpdate(bookId);
+            //read again under the lock, it may have moved up or been handed the book in the meantime
+            reservationRepository.findPositionById(id)
+                    .ifPresent(position -> leave(bookId, id, position));
+        });
+    }
+
+    // the head of the book's queue, taken out of it: who the book goes to next.
+    // joins the caller's transaction, which keeps the book's row lock until it commits
+    @Transactional
+    public Optional<Reservation> next(Long bookId){
+        bookRepository.findForUpdate(bookId);
+        Optional<Reservation> head = reservationRepository.findByBookIdAndPosition(bookId, 1);
+        head.ifPresent(reservation -> leave(bookId, reservation.getId(), 1));
+        return head;
+    }
+
+
+    private void leave(Long bookId, Long id, int position){
+        reservationRepository.deleteReservation(id);
+        reservationRepository.moveUp(bookId, position);
+    }
+}
@@ -0,0 +1,15 @@
+package com.project.library_management_system.loan;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// flat read-only row of a reservation, like LoanView: book and user by id, the email only for the ownership check
+public record ReservationView(Long id, Long bookId, Long userId, int position, Instant createdAt,
+                              @JsonIgnore String userEmail) {
+
+    public static ReservationView of(Reservation reservation){
+        return new ReservationView(reservation.getId(), reservation.getBook().getId(), reservation.getUser().getId(),
+                reservation.getPosition(), reservation.getCreatedAt(), reservation.getUser().getEmail());
+    }
+}
@@ -1,6 +1,7 @@
 package com.project.library_management_system.security;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.springframework.http.HttpStatus;
@@ -16,12 +17,15 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.project.library_management_system.user.Role;
 import com.project.library_management_system.user.User;
 import com.project.library_management_system.user.UserRepository;
 
+import jakarta.validation.Valid;
+
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
@@ -30,38 +34,59 @@ public class AuthController {
     private JwtEncoder jwtEncoder;
     private UserRepository userRepository;
     private PasswordEncoder encoder;
+    private PasswordHashingExecutor passwordHashing;
+    private RefreshTokenService refreshTokens;
 
 
-    public AuthController(AuthenticationManager authenticationManager, JwtEncoder jwtEncoder, UserRepository userRepository, PasswordEncoder encoder) {
+    public AuthController(AuthenticationManager authenticationManager, JwtEncoder jwtEncoder, UserRepository userRepository, PasswordEncoder encoder,
+                          PasswordHashingExecutor passwordHashing, RefreshTokenService refreshTokens) {
         this.authenticationManager = authenticationManager;
         this.jwtEncoder = jwtEncoder;
         this.userRepository=userRepository;
         this.encoder=encoder;
+        this.passwordHashing=passwordHashing;
+        this.refreshTokens=refreshTokens;
     }
 
     //login logic
+    //the bcrypt check runs on the hashing pool, the servlet thread is given back until it is done
     @PostMapping("/login")
-    public JwtResponse login(@RequestBody LoginRequest request){
+    public CompletableFuture<JwtResponse> login(@RequestBody LoginRequest request){
         //this call the method of the usercredentials
-        Authentication authentication = authenticationManager.authenticate(
+        return passwordHashing.submit(() -> authenticationManager.authenticate(
                   new UsernamePasswordAuthenticationToken(
                     request.getEmail(), 
                     request.getPassword()
              )
-        );
-
-        String token = createToken(authentication);
-        return new JwtResponse(token);
+        ))
+        .thenApply(authentication -> new JwtResponse(
+                createToken(authentication.getName(), createScope(authentication)),
+                refreshTokens.issue(authentication.getName())));
         
     }
 
-    private String createToken(Authentication authentication){
+    //trades a refresh token for a new access + refresh token, no password and no bcrypt involved
+    @PostMapping("/refresh")
+    public JwtResponse refresh(@RequestBody @Valid RefreshRequest request){
+        RefreshTokenService.Rotation rotation = refreshTokens.rotate(request.getRefreshToken());
+        User user = rotation.user();
+        return new JwtResponse(createToken(user.getEmail(), "ROLE_"+user.getRole().name()), rotation.refreshToken());
+    }
+
+    //ends the session the refresh token belongs to, the access token runs out on its own
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PostMapping("/logout")
+    public void logout(@RequestBody @Valid RefreshRequest request){
+        refreshTokens.revoke(request.getRefreshToken());
+    }
+
+    private String createToken(String subject, String scope){
         var claims=  JwtClaimsSet.builder()
                         .issuer("self")
                         .issuedAt(Instant.now())
                         .expiresAt(Instant.now().plusSeconds(1800))
-                        .subject(authentication.getName())
-                        .claim("scope", createScope(authentication))
+                        .subject(subject)
+                        .claim("scope", scope)
                         .build();
 
         JwtEncoderParameters paramters = JwtEncoderParameters.from(claims);
@@ -82,20 +107,23 @@ public class AuthController {
     //register logic
 
     @PostMapping("/register")
-    public ResponseEntity<String> register(@RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<String>> register(@RequestBody RegisterRequest request) {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
-            return ResponseEntity.badRequest().body("Email already exists");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Email already exists"));
         }
 
-        User user = new User();
-        user.setName(request.getName());
-        user.setEmail(request.getEmail());
-        user.setPassword(encoder.encode(request.getPassword()));
-        user.setRole(Role.USER);
-        user.setApproved(false);
-        userRepository.save(user);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body("User registered. Awaiting approval.");
+        return passwordHashing.submit(() -> encoder.encode(request.getPassword()))
+            .thenApply(hash -> {
+                User user = new User();
+                user.setName(request.getName());
+                user.setEmail(request.getEmail());
+                user.setPassword(hash);
+                user.setRole(Role.USER);
+                user.setApproved(false);
+                userRepository.save(user);
+
+                return ResponseEntity.status(HttpStatus.CREATED).body("User registered. Awaiting approval.");
+            });
     }
 
 
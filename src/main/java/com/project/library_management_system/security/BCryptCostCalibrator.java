@@ -0,0 +1,38 @@
+package com.project.library_management_system.security;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+// picks the bcrypt cost for this machine: every +1 doubles the work, so we time the minimum cost once
+// and go up as long as the estimate stays under the target
+final class BCryptCostCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(BCryptCostCalibrator.class);
+
+    private BCryptCostCalibrator(){
+
+    }
+
+    static int calibrate(Duration target, int minCost, int maxCost){
+        String salt = BCrypt.gensalt(minCost);
+        BCrypt.hashpw("calibration", salt); //warm up
+
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", salt);
+        long measured = Math.max(System.nanoTime() - start, 1);
+
+        int cost = minCost;
+        long estimate = measured;
+        while(cost < maxCost && estimate * 2 <= target.toNanos()){
+            estimate *= 2;
+            cost++;
+        }
+
+        log.info("BCrypt cost {} selected (cost {} took {} ms, target {} ms)",
+                    cost, minCost, measured / 1_000_000, target.toMillis());
+        return cost;
+    }
+}
@@ -0,0 +1,159 @@
+package com.project.library_management_system.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// clients send the same token with every request for its whole lifetime, so the signature check and
+// the claim parsing are done once: sha-256(token) -> decoded jwt + its authorities, until the token's exp.
+// the key is a digest so the cache never holds usable tokens; invalid tokens are not cached
+public class CachingJwtDecoder implements JwtDecoder, MeterBinder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, CachedJwt> cache;
+    //security.jwt.decode{result=hit|miss|invalid}, null until bound to a registry
+    private volatile Timer hits;
+    private volatile Timer misses;
+    private volatile Timer invalid;
+
+    public CachingJwtDecoder(JwtDecoder delegate, Duration maxTtl, long maxSize){
+        this.delegate=delegate;
+        this.cache=Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfter(new Expiry<String, CachedJwt>() {
+                        @Override
+                        public long expireAfterCreate(String key, CachedJwt value, long currentTime) {
+                            return timeToLive(value.jwt(), maxTtl).toNanos();
+                        }
+
+                        @Override
+                        public long expireAfterUpdate(String key, CachedJwt value, long currentTime, long currentDuration) {
+                            return currentDuration;
+                        }
+
+                        @Override
+                        public long expireAfterRead(String key, CachedJwt value, long currentTime, long currentDuration) {
+                            return currentDuration;
+                        }
+                    })
+                    .recordStats()
+                    .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = System.nanoTime();
+        String key = digest(token);
+        CachedJwt cached = cache.getIfPresent(key);
+        if(cached == null || isExpired(cached.jwt())){    //the cache may keep an entry a moment past its expiry
+            Jwt jwt;
+            try{
+                jwt = delegate.decode(token);               //throws for bad signatures and expired tokens
+            }catch(JwtException ex){
+                record(invalid, start);
+                throw ex;
+            }
+            cached = new CachedJwt(jwt, authoritiesOf(jwt));
+            cache.put(key, cached);
+            record(misses, start);
+        }else{
+            record(hits, start);
+        }
+        return cached.jwt();
+    }
+
+    // authorities of a jwt, built once per token instead of once per request: the entry decode() cached for the
+    // same token value is looked up again (a sha-256 of the token, far cheaper than the claim parsing it saves).
+    // the token value fixes the claims, so any entry under it holds this jwt's authorities
+    public Collection<GrantedAuthority> authorities(Jwt jwt){
+        CachedJwt cached = cache.getIfPresent(digest(jwt.getTokenValue()));
+        return cached != null ? cached.authorities() : authoritiesOf(jwt);
+    }
+
+    public void invalidateAll(){
+        cache.invalidateAll();
+    }
+
+    long size(){
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "jwt");
+        hits = decodeTimer(registry, "hit");
+        misses = decodeTimer(registry, "miss");
+        invalid = decodeTimer(registry, "invalid");
+    }
+
+    private static Timer decodeTimer(MeterRegistry registry, String result){
+        return Timer.builder("security.jwt.decode")
+                .description("Bearer token decoding, a hit skips the signature check")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static void record(Timer timer, long start){
+        if(timer != null){
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+
+    //the "scope" claim holds the roles separated by spaces, e.g. "ROLE_ADMIN"
+    static List<GrantedAuthority> authoritiesOf(Jwt jwt){
+        String scope = jwt.getClaimAsString("scope");
+        return scope == null ? List.of() :
+            Arrays.stream(scope.split(" ", -1))
+                .map(authority -> (GrantedAuthority) new SimpleGrantedAuthority(authority))
+                .toList();
+    }
+
+    private static Duration timeToLive(Jwt jwt, Duration maxTtl){
+        if(jwt.getExpiresAt() == null){
+            return maxTtl;
+        }
+        Duration untilExpiry = Duration.between(Instant.now(), jwt.getExpiresAt());
+        return untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+
+    private static boolean isExpired(Jwt jwt){
+        return jwt.getExpiresAt() != null && !Instant.now().isBefore(jwt.getExpiresAt());
+    }
+
+    private static String digest(String token){
+        try{
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 is not available", e);   //every jvm has it
+        }
+    }
+
+    private record CachedJwt(Jwt jwt, List<GrantedAuthority> authorities) {
+
+    }
+}
@@ -0,0 +1,80 @@
+package com.project.library_management_system.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// the stock encoder only asks for an upgrade when the stored cost is lower,
+// we also want to come down again when the calibrated cost drops (e.g. smaller machine).
+// the time of every hash is kept as security.password.hash{operation=encode|matches}, once bound to a registry
+public class CostAwareBCryptPasswordEncoder extends BCryptPasswordEncoder implements MeterBinder {
+
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$.{53}$");
+
+    private int cost;
+    private volatile Timer encodeTimer;
+    private volatile Timer matchesTimer;
+
+    public CostAwareBCryptPasswordEncoder(int cost){
+        super(cost);
+        this.cost=cost;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        long start = System.nanoTime();
+        String hash = super.encode(rawPassword);
+        record(encodeTimer, start);
+        return hash;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        boolean matches = super.matches(rawPassword, encodedPassword);
+        record(matchesTimer, start);
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if(encodedPassword == null){
+            return false;
+        }
+        Matcher matcher = BCRYPT.matcher(encodedPassword);
+        if(!matcher.matches()){
+            return false;
+        }
+        return Integer.parseInt(matcher.group(1)) != cost;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        encodeTimer = hashTimer(registry, "encode");
+        matchesTimer = hashTimer(registry, "matches");
+    }
+
+    private Timer hashTimer(MeterRegistry registry, String operation){
+        return Timer.builder("security.password.hash")
+                .description("BCrypt hashing, on the password hashing pool")
+                .tag("operation", operation)
+                .tag("cost", Integer.toString(cost))
+                .register(registry);
+    }
+
+    private static void record(Timer timer, long start){
+        if(timer != null){
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
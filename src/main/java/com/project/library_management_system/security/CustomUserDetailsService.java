@@ -1,49 +1,114 @@
 package com.project.library_management_system.security;
 
+import java.time.Duration;
 import java.util.Collections;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.library_management_system.user.Role;
 import com.project.library_management_system.user.User;
 import com.project.library_management_system.user.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService, MeterBinder {
 
     private UserRepository userRepository;
+
+    //email -> what we need to build the principal, so repeated logins don't hit the database
+    //entries expire after the ttl, that is the longest a revoked/unapproved account can still log in
+    private Cache<String, CachedUser> cache;
     
-    public CustomUserDetailsService(UserRepository userRepository){
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    @Value("${security.user-cache.ttl:5m}") Duration ttl,
+                                    @Value("${security.user-cache.max-size:10000}") long maxSize){
         this.userRepository=userRepository;
+        this.cache=Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .build();
     }
 
 
     //this function is called when user is trying to login
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-        .orElseThrow(()->new UsernameNotFoundException("User not found"));
+        CachedUser user = cache.get(email, this::findUser);  //unknown emails are not cached
+        if(user == null){
+            throw new UsernameNotFoundException("User not found");
+        }
 
-        if(!user.isApproved()){
+        if(!user.approved()){
             throw new DisabledException("User is not approved yet");
         }
 
-        SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_"+user.getRole().name());
+        SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_"+user.role().name());
 
+        // a new object every time: the authentication manager erases the password of the returned principal
         return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(), // already hashed
+                user.email(),
+                user.password(), // already hashed
                 Collections.singletonList(authority)
         );
 
     }
 
+    //called by the authentication manager after a successful login when the stored hash
+    //has an old format or another bcrypt cost than the current one
+    @Override
+    public UserDetails updatePassword(UserDetails details, String newPassword) {
+        userRepository.findByEmail(details.getUsername())
+            .ifPresent(user -> {
+                user.setPassword(newPassword);
+                userRepository.save(user);
+            });
+        evict(details.getUsername());
 
-    
+        return org.springframework.security.core.userdetails.User.withUserDetails(details)
+                .password(newPassword)
+                .build();
+    }
+
+    //must be called whenever a user's email, password, role or approval changes or the user is deleted
+    public void evict(String email){
+        if(email != null){
+            cache.invalidate(email);
+        }
+    }
+
+    public void evictAll(){
+        cache.invalidateAll();
+    }
+
+    //hit/miss/eviction counters, published under cache.* with the tag cache=userDetails
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+    }
+
+
+    private CachedUser findUser(String email){
+        return userRepository.findByEmail(email)
+                .map(user -> new CachedUser(user.getEmail(), user.getPassword(), user.getRole(), user.isApproved()))
+                .orElse(null);
+    }
+
+    private record CachedUser(String email, String password, Role role, boolean approved) {
+
+    }
     
 }
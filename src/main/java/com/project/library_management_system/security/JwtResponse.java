@@ -2,6 +2,6 @@ package com.project.library_management_system.security;
 
 
 
-public record JwtResponse(String token) {
+public record JwtResponse(String token, String refreshToken) {
     
 }
@@ -0,0 +1,201 @@
+package com.project.library_management_system.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+
+// the keys tokens are signed and verified with: one active key signs, every key of the set verifies,
+// so a key can be rotated by adding the new one, making it active and dropping the old one after
+// the token lifetime. supported: RS256 (rsa), ES256 (ec p-256, much cheaper to sign), HS256 (shared secret, single node)
+public final class JwtSigningKeys {
+
+    static final Set<JWSAlgorithm> SUPPORTED = Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256, JWSAlgorithm.HS256);
+
+    private final JWK signingKey;
+    private final JWSAlgorithm algorithm;
+    private final JWKSet keys;
+
+    private JwtSigningKeys(JWK signingKey, JWSAlgorithm algorithm, JWKSet keys){
+        this.signingKey=signingKey;
+        this.algorithm=algorithm;
+        this.keys=keys;
+    }
+
+    // a fresh key that lives as long as the process: tokens don't survive a restart
+    public static JwtSigningKeys generate(JWSAlgorithm algorithm){
+        checkSupported(algorithm);
+        try{
+            String keyId = UUID.randomUUID().toString();
+            JWK key;
+            if(JWSAlgorithm.RS256.equals(algorithm)){
+                key = new RSAKeyGenerator(2048).keyID(keyId).generate();
+            }else if(JWSAlgorithm.ES256.equals(algorithm)){
+                key = new ECKeyGenerator(Curve.P_256).keyID(keyId).generate();
+            }else{
+                key = new OctetSequenceKeyGenerator(256).keyID(keyId).generate();
+            }
+            return new JwtSigningKeys(key, algorithm, new JWKSet(key));
+        }catch(JOSEException e){
+            throw new IllegalStateException("Could not generate a " + algorithm + " key", e);
+        }
+    }
+
+    // every key entry of a PKCS12 keystore (alias = key id), e.g. made with
+    //   keytool -genkeypair -keyalg EC -groupname secp256r1 -alias 2025-01 -storetype PKCS12 -keystore jwt.p12
+    //   keytool -genseckey -keyalg HmacSHA256 -keysize 256 -alias 2025-01 -storetype PKCS12 -keystore jwt.p12
+    // activeKey picks the signing key, blank means the last alias (in sort order) that fits the algorithm
+    public static JwtSigningKeys load(Path keystore, char[] password, JWSAlgorithm algorithm, String activeKey){
+        checkSupported(algorithm);
+        List<JWK> keys = new ArrayList<>();
+        try(InputStream in = Files.newInputStream(keystore)){
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            store.load(in, password);
+            for(String alias : Collections.list(store.aliases())){
+                JWK key = toJwk(alias, store.getEntry(alias, new KeyStore.PasswordProtection(password)));
+                if(key != null){
+                    keys.add(key);
+                }
+            }
+        }catch(IOException | GeneralSecurityException e){
+            throw new IllegalStateException("Could not load the jwt keystore " + keystore, e);
+        }
+
+        List<JWK> usable = keys.stream()
+                .filter(key -> algorithmOf(key) != null)
+                .sorted(Comparator.comparing(JWK::getKeyID))
+                .toList();
+        if(usable.isEmpty()){
+            throw new IllegalStateException("The jwt keystore " + keystore + " has no RSA, EC P-256 or HMAC keys");
+        }
+
+        JWK signingKey;
+        if(activeKey == null || activeKey.isBlank()){
+            signingKey = usable.stream()
+                    .filter(key -> algorithm.equals(algorithmOf(key)))
+                    .reduce((first, second) -> second)
+                    .orElseThrow(() -> new IllegalStateException("The jwt keystore " + keystore + " has no key for " + algorithm));
+        }else{
+            signingKey = usable.stream()
+                    .filter(key -> key.getKeyID().equals(activeKey))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("The jwt keystore " + keystore + " has no key " + activeKey));
+            if(!algorithm.equals(algorithmOf(signingKey))){
+                throw new IllegalStateException("Key " + activeKey + " can't sign " + algorithm);
+            }
+        }
+        return new JwtSigningKeys(signingKey, algorithm, new JWKSet(usable));
+    }
+
+    public JWSAlgorithm algorithm(){
+        return algorithm;
+    }
+
+    public String signingKeyId(){
+        return signingKey.getKeyID();
+    }
+
+    public int size(){
+        return keys.size();
+    }
+
+    // signs with the active key, tokens carry its id (kid) so the decoder can pick the right key
+    public JwtEncoder encoder(){
+        NimbusJwtEncoder nimbus = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(signingKey)));
+        JwsHeader header = JwsHeader.with(springAlgorithm(algorithm)).keyId(signingKey.getKeyID()).build();
+        return parameters -> nimbus.encode(parameters.getJwsHeader() != null ? parameters
+                : JwtEncoderParameters.from(header, parameters.getClaims()));
+    }
+
+    // accepts tokens signed by any key of the set, with the algorithm that belongs to that key
+    public JwtDecoder decoder(){
+        Set<JWSAlgorithm> algorithms = new HashSet<>();
+        keys.getKeys().forEach(key -> algorithms.add(algorithmOf(key)));
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithms, new ImmutableJWKSet<>(keys)));
+        processor.setJWTClaimsSetVerifier((claims, context) -> {});   //exp/nbf are checked by spring's validators
+        return new NimbusJwtDecoder(processor);
+    }
+
+
+    //key pairs (public key from the certificate) and secret keys, other entries are skipped
+    private static JWK toJwk(String alias, KeyStore.Entry entry){
+        if(entry instanceof KeyStore.PrivateKeyEntry pair){
+            PublicKey publicKey = pair.getCertificate().getPublicKey();
+            if(publicKey instanceof RSAPublicKey rsa){
+                return new RSAKey.Builder(rsa).privateKey(pair.getPrivateKey()).keyID(alias).build();
+            }
+            if(publicKey instanceof ECPublicKey ec){
+                Curve curve = Curve.forECParameterSpec(ec.getParams());
+                return curve == null ? null : new ECKey.Builder(curve, ec).privateKey(pair.getPrivateKey()).keyID(alias).build();
+            }
+        }
+        if(entry instanceof KeyStore.SecretKeyEntry secret){
+            return new OctetSequenceKey.Builder(secret.getSecretKey()).keyID(alias).build();
+        }
+        return null;
+    }
+
+    private static JWSAlgorithm algorithmOf(JWK key){
+        if(key instanceof RSAKey rsa && rsa.size() >= 2048){
+            return JWSAlgorithm.RS256;
+        }
+        if(key instanceof ECKey ec && Curve.P_256.equals(ec.getCurve())){
+            return JWSAlgorithm.ES256;
+        }
+        if(key instanceof OctetSequenceKey secret && secret.size() >= 256){
+            return JWSAlgorithm.HS256;
+        }
+        return null;
+    }
+
+    private static JwsAlgorithm springAlgorithm(JWSAlgorithm algorithm){
+        MacAlgorithm mac = MacAlgorithm.from(algorithm.getName());
+        return mac != null ? mac : SignatureAlgorithm.from(algorithm.getName());
+    }
+
+    private static void checkSupported(JWSAlgorithm algorithm){
+        if(!SUPPORTED.contains(algorithm)){
+            throw new IllegalStateException("Unsupported jwt algorithm " + algorithm + ", use one of RS256, ES256, HS256");
+        }
+    }
+}
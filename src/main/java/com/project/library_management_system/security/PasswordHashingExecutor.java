@@ -0,0 +1,67 @@
+package com.project.library_management_system.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.project.library_management_system.exception.TooManyRequestsException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+// bcrypt is deliberately slow and cpu bound, so it gets its own small pool instead of running on the servlet threads.
+// when the pool and its queue are full, new work is rejected right away (429) instead of piling up.
+// its active/queued/completed counts are the executor.* meters with name=password.hashing
+@Component
+public class PasswordHashingExecutor implements DisposableBean, MeterBinder {
+
+    private ThreadPoolExecutor executor;
+
+    public PasswordHashingExecutor(@Value("${security.password.hashing-threads:0}") int threads,
+                                   @Value("${security.password.queue-capacity:64}") int queueCapacity){
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(queueCapacity),
+                            threadFactory(),
+                            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task){
+        try{
+            return CompletableFuture.supplyAsync(task, executor);
+        }catch(RejectedExecutionException ex){
+            throw new TooManyRequestsException("Too many login attempts in progress, try again later");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "password.hashing", Tags.empty()).bindTo(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+
+    private static ThreadFactory threadFactory(){
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,227 @@
+package com.project.library_management_system.security;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+// first filter of the security chain: a client over its route limit gets 429, a server with too many
+// requests in flight gets 503, both before a jwt is decoded, a user is looked up or a password is hashed.
+// not a bean on purpose, spring boot would register it a second time as a plain servlet filter
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    //a login body is tiny, anything bigger is passed on without looking for the email
+    private static final int MAX_INSPECTED_BODY = 16 * 1024;
+
+    private final RateLimiter limiter;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public RateLimitFilter(RateLimiter limiter){
+        this.limiter=limiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        List<RateLimiter.LimitedRoute> routes = limiter.matching(request);
+        if(routes.stream().anyMatch(route -> route.uses(RateLimitProperties.Key.EMAIL))){
+            request = new CachedBodyRequest(request);
+        }
+        for(RateLimiter.LimitedRoute route : routes){
+            long wait = acquire(route, request);
+            if(wait > 0){
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+                return;
+            }
+        }
+
+        if(!limiter.tryEnter()){
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            //login and register finish on the hashing pool, the slot is held until the response is done
+            if(request.isAsyncStarted()){
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+                async = true;
+            }
+        } finally {
+            if(!async){
+                limiter.exit();
+            }
+        }
+    }
+
+    private long acquire(RateLimiter.LimitedRoute route, HttpServletRequest request){
+        long wait = 0;
+        if(route.uses(RateLimitProperties.Key.IP)){
+            wait = route.acquire(RateLimitProperties.Key.IP, request.getRemoteAddr());
+        }
+        if(wait == 0 && route.uses(RateLimitProperties.Key.EMAIL) && request instanceof CachedBodyRequest cached){
+            String email = cached.email();
+            if(email != null){
+                wait = route.acquire(RateLimitProperties.Key.EMAIL, email);
+            }
+        }
+        return wait;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase() + "\"}");
+    }
+
+    private class ReleaseOnComplete implements AsyncListener {
+
+        //called after a timeout or an error as well
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.exit();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    // reads the (small) body once so the email can be keyed on, then replays it to the controller
+    private class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+        private final boolean complete;
+        private ServletInputStream replay;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readNBytes(MAX_INSPECTED_BODY);
+            this.complete = body.length < MAX_INSPECTED_BODY;
+        }
+
+        String email(){
+            if(!complete){
+                return null;
+            }
+            try (JsonParser parser = jsonFactory.createParser(body)) {
+                if(parser.nextToken() != JsonToken.START_OBJECT){
+                    return null;
+                }
+                while(parser.nextToken() == JsonToken.FIELD_NAME){
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if("email".equals(field) && value == JsonToken.VALUE_STRING){
+                        return parser.getText().trim().toLowerCase(Locale.ROOT);
+                    }
+                    parser.skipChildren();
+                }
+            } catch (IOException e) {
+                //malformed json, the controller will reject it
+            }
+            return null;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if(replay == null){
+                replay = replay(super.getInputStream());
+            }
+            return replay;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        private ServletInputStream replay(ServletInputStream rest){
+            ByteArrayInputStream head = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    int b = head.read();
+                    return b != -1 || complete ? b : rest.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int n = head.read(buffer, offset, length);
+                    return n != -1 || complete ? n : rest.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return head.available() == 0 && (complete || rest.isFinished());
+                }
+
+                @Override
+                public boolean isReady() {
+                    return head.available() > 0 || complete || rest.isReady();
+                }
+
+                // non-blocking reads: the container drives the listener through the wrapped stream,
+                // reads go through the buffered head first. a head the container no longer signals
+                // (the rest was already read to the end) is handed over before the end of the body
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    rest.setReadListener(new ReadListener() {
+                        @Override
+                        public void onDataAvailable() throws IOException {
+                            listener.onDataAvailable();
+                        }
+
+                        @Override
+                        public void onAllDataRead() throws IOException {
+                            if(head.available() > 0){
+                                listener.onDataAvailable();
+                            }
+                            listener.onAllDataRead();
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            listener.onError(t);
+                        }
+                    });
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.project.library_management_system.security;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// security.rate-limit.*: one global cap on requests in flight plus token buckets per route,
+// e.g. security.rate-limit.routes.login.pattern=/auth/login
+@ConfigurationProperties(prefix = "security.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("500") int maxConcurrentRequests,
+        @DefaultValue("100000") long maxKeys,
+        @DefaultValue("10m") Duration idleTimeout,
+        Map<String, Route> routes) {
+
+    public RateLimitProperties {
+        routes = routes == null ? Map.of() : routes;
+    }
+
+    // capacity requests at once, refilled evenly over period; every key gets its own bucket
+    public record Route(String pattern, String method, int capacity, Duration period, Set<Key> keys) {
+    }
+
+    public enum Key {
+        IP,
+        EMAIL
+    }
+}
@@ -0,0 +1,125 @@
+package com.project.library_management_system.security;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+
+// the state behind RateLimitFilter: a semaphore for the requests in flight and, per route, a bounded
+// cache of token buckets by client key. idle buckets are evicted, a new bucket starts full
+public class RateLimiter implements MeterBinder {
+
+    private final Semaphore inFlight;
+    private final int maxConcurrentRequests;
+    private final List<LimitedRoute> routes;
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public RateLimiter(RateLimitProperties properties){
+        this.maxConcurrentRequests = properties.maxConcurrentRequests();
+        this.inFlight = new Semaphore(Math.max(0, maxConcurrentRequests));
+        this.routes = properties.routes().entrySet().stream()
+                .map(entry -> new LimitedRoute(entry.getKey(), entry.getValue(), properties))
+                .toList();
+    }
+
+    public final class LimitedRoute {
+
+        private final String name;
+        private final PathPattern pattern;
+        private final RateLimitProperties.Route route;
+        private final Cache<String, TokenBucket> buckets;
+
+        private LimitedRoute(String name, RateLimitProperties.Route route, RateLimitProperties properties){
+            this.name = name;
+            this.route = route;
+            this.pattern = PathPatternParser.defaultInstance.parse(route.pattern());
+            //caffeine's map is striped, a hit is a lock-free read
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(properties.maxKeys())
+                    .expireAfterAccess(properties.idleTimeout())
+                    .recordStats()
+                    .build();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        //method and path below the context path, independent of how the servlet is mapped
+        private boolean matches(HttpServletRequest request, PathContainer path){
+            return (route.method() == null || route.method().equalsIgnoreCase(request.getMethod()))
+                    && pattern.matches(path);
+        }
+
+        public boolean uses(RateLimitProperties.Key key) {
+            return route.keys() != null && route.keys().contains(key);
+        }
+
+        //0 when the request may pass, otherwise nanos until this key gets a token again
+        public long acquire(RateLimitProperties.Key key, String value){
+            TokenBucket bucket = buckets.get(key.name() + ':' + value, k -> new TokenBucket(route.capacity(), route.period()));
+            long wait = bucket.tryConsume(System.nanoTime());
+            if(wait > 0){
+                rateLimited.increment();
+            }
+            return wait;
+        }
+    }
+
+    public List<LimitedRoute> matching(HttpServletRequest request){
+        if(routes.isEmpty()){
+            return List.of();
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        return routes.stream().filter(route -> route.matches(request, path)).toList();
+    }
+
+    //non-blocking: a full server answers right away instead of queueing more work
+    public boolean tryEnter(){
+        if(maxConcurrentRequests <= 0){
+            return true;
+        }
+        if(inFlight.tryAcquire()){
+            return true;
+        }
+        shed.increment();
+        return false;
+    }
+
+    public void exit(){
+        if(maxConcurrentRequests > 0){
+            inFlight.release();
+        }
+    }
+
+    int inFlight(){
+        return maxConcurrentRequests <= 0 ? 0 : maxConcurrentRequests - inFlight.availablePermits();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("security.rate.limit.rejected", rateLimited, LongAdder::sum)
+                .tag("reason", "rate")
+                .register(registry);
+        FunctionCounter.builder("security.rate.limit.rejected", shed, LongAdder::sum)
+                .tag("reason", "overload")
+                .register(registry);
+        Gauge.builder("security.requests.in.flight", this, RateLimiter::inFlight)
+                .register(registry);
+        routes.forEach(route -> CaffeineCacheMetrics.monitor(registry, route.buckets, "rateLimit." + route.name));
+    }
+}
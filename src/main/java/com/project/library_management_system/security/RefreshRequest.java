@@ -0,0 +1,23 @@
+package com.project.library_management_system.security;
+
+
+
+import jakarta.validation.constraints.NotBlank;
+
+
+
+public class RefreshRequest {
+
+    @NotBlank
+    private String refreshToken;
+
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,92 @@
+package com.project.library_management_system.security;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import com.project.library_management_system.user.User;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+// one row per issued refresh token. only the sha-256 of the token is stored, the token itself is
+// handed to the client once. every rotation of a login stays in the same family
+@Entity
+@Table(name = "refresh_token", indexes = {
+    @Index(name = "ux_refresh_token_hash", columnList = "token_hash", unique = true),
+    @Index(name = "ix_refresh_token_family", columnList = "family"),
+    @Index(name = "ix_refresh_token_user", columnList = "user_id")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false, length = 43)
+    private String tokenHash;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id")
+    @OnDelete(action = OnDeleteAction.CASCADE) //deleting a user drops its tokens
+    private User user;
+
+    @Column(nullable = false)
+    private UUID family;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    private boolean used;
+
+    private boolean revoked;
+
+    public RefreshToken(){
+
+    }
+
+    public RefreshToken(String tokenHash, User user, UUID family, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.user = user;
+        this.family = family;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public UUID getFamily() {
+        return family;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isUsed() {
+        return used;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+}
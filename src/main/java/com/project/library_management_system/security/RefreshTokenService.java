@@ -0,0 +1,117 @@
+package com.project.library_management_system.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.project.library_management_system.exception.UnauthorizedException;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+
+// opaque, rotating refresh tokens: a refresh hands out a new access token without a bcrypt check.
+// each refresh token can be used once, presenting a used one again revokes its whole family
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final String invalid = "Refresh token is invalid or expired";
+
+    private final SecureRandom random = new SecureRandom();
+    private RefreshTokenRepository refreshTokenRepository;
+    private UserRepository userRepository;
+    private Duration ttl;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+                               @Value("${security.refresh-token.ttl:14d}") Duration ttl){
+        this.refreshTokenRepository=refreshTokenRepository;
+        this.userRepository=userRepository;
+        this.ttl=ttl;
+    }
+
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    //starts a new family, called after a successful password login
+    @Transactional
+    public String issue(String email){
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new UnauthorizedException(invalid));
+        return issue(user, UUID.randomUUID());
+    }
+
+    //the revocations must survive the 401, so the exception does not roll them back
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public Rotation rotate(String token){
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(token))
+            .orElseThrow(() -> new UnauthorizedException(invalid));
+
+        if(current.isRevoked() || current.getExpiresAt().isBefore(Instant.now())){
+            throw new UnauthorizedException(invalid);
+        }
+        //a token that was already rotated came back (or two requests raced with it):
+        //one of the holders is not the client, so nobody in this family gets a new token
+        if(current.isUsed() || refreshTokenRepository.markUsed(current.getId()) == 0){
+            refreshTokenRepository.revokeFamily(current.getFamily());
+            log.warn("Refresh token reuse for user {}, token family {} revoked", current.getUser().getId(), current.getFamily());
+            throw new UnauthorizedException(invalid);
+        }
+        User user = current.getUser();
+        if(!user.isApproved()){
+            refreshTokenRepository.revokeFamily(current.getFamily());
+            throw new UnauthorizedException(invalid);
+        }
+        return new Rotation(user, issue(user, current.getFamily()));
+    }
+
+    //logout: ends the family of the given token, unknown tokens are ignored
+    @Transactional
+    public void revoke(String token){
+        refreshTokenRepository.findByTokenHash(hash(token))
+            .ifPresent(current -> refreshTokenRepository.revokeFamily(current.getFamily()));
+    }
+
+    //every session of the user, e.g. after the account was changed or compromised
+    @Transactional
+    public int revokeAll(Long userId){
+        return refreshTokenRepository.revokeAllByUserId(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${security.refresh-token.purge-interval:1h}")
+    @Transactional
+    public void purgeExpired(){
+        int purged = refreshTokenRepository.deleteExpired(Instant.now());
+        if(purged > 0){
+            log.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private String issue(User user, UUID family){
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(new RefreshToken(hash(token), user, family, Instant.now().plus(ttl)));
+        return token;
+    }
+
+    //the table only holds digests, a leaked dump can't be replayed
+    static String hash(String token){
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
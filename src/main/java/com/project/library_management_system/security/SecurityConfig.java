@@ -1,13 +1,14 @@
 package com.project.library_management_system.security;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPublicKey;
-import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
-
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -17,24 +18,24 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 
-import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.JWSAlgorithm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 
 @Configuration
 @EnableMethodSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
+
+        private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
     
         private final CustomUserDetailsService userDetailsService;
 
@@ -44,7 +45,12 @@ public class SecurityConfig {
 
 
         @Bean
-        public SecurityFilterChain securityFilterChain (HttpSecurity http) throws Exception{
+        public SecurityFilterChain securityFilterChain (HttpSecurity http, CachingJwtDecoder jwtDecoder,
+                                                        RateLimitProperties rateLimits, RateLimiter rateLimiter) throws Exception{
+            if(rateLimits.enabled()){
+                //ahead of the bearer token check: a shed request costs neither a jwt decode nor a bcrypt hash
+                http.addFilterBefore(new RateLimitFilter(rateLimiter), BearerTokenAuthenticationFilter.class);
+            }
             http.csrf(csrf->csrf.disable())
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth ->auth
@@ -54,17 +60,21 @@ public class SecurityConfig {
                                     "/swagger-ui.html"
                             ).permitAll()
                             .requestMatchers("/auth/**").permitAll()
+                            .requestMatchers("/actuator/health").permitAll()
+                            .requestMatchers("/actuator/**").hasRole("ADMIN")
                             .requestMatchers(HttpMethod.DELETE, "/api/books/**").hasRole("ADMIN")
                             .requestMatchers(HttpMethod.POST, "/api/books/**").hasRole("ADMIN")
                             .requestMatchers(HttpMethod.PUT, "/api/books/**").hasRole("ADMIN")
                             .requestMatchers(HttpMethod.GET, "/api/books/**").hasAnyRole("USER", "ADMIN")
                             .requestMatchers("/api/users/**").hasRole("ADMIN")
                             .requestMatchers("/api/loans/**").hasAnyRole("ADMIN", "USER")
+                            .requestMatchers("/api/reservations/**").hasAnyRole("ADMIN", "USER")
                             .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
                 .jwt(jwt -> jwt
-                    .jwtAuthenticationConverter(jwtAuthenticationConverter())
+                    .decoder(jwtDecoder)
+                    .jwtAuthenticationConverter(jwtAuthenticationConverter(jwtDecoder))
                 )
             )
             .userDetailsService(userDetailsService)
@@ -79,59 +89,51 @@ public class SecurityConfig {
 
 
 
-     // tells how to extract the user roles
-    private JwtAuthenticationConverter jwtAuthenticationConverter() {
+     // tells how to extract the user roles, they are parsed once per token by the decoder
+    private JwtAuthenticationConverter jwtAuthenticationConverter(CachingJwtDecoder jwtDecoder) {
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(jwt -> {
-            String scope = jwt.getClaimAsString("scope");
-            return scope == null ? List.of() :
-                Arrays.stream(scope.split(" ", -1))
-                    .map(SimpleGrantedAuthority::new)
-                    .collect(Collectors.toList());
-        });
+        converter.setJwtGrantedAuthoritiesConverter(jwtDecoder::authorities);
         return converter;
    }
 
 
 
-     @Bean
-    public KeyPair keyPair(){
-        try{
-            var keypairGenerator = KeyPairGenerator.getInstance("RSA");
-            keypairGenerator.initialize(2048);//the bigger the key size the higher the security
-            return keypairGenerator.generateKeyPair();
-        }catch(Exception ex){
-            throw new RuntimeException(ex);
-        }
+    @Bean
+    public RateLimiter rateLimiter(RateLimitProperties rateLimits){
+        return new RateLimiter(rateLimits);
     }
 
 
-    @Bean 
-    RSAKey rsaKey(KeyPair keyPair){
-        return new RSAKey.Builder((RSAPublicKey)keyPair().getPublic())
-                  .privateKey(keyPair().getPrivate())
-                  .keyID(UUID.randomUUID().toString())
-                  .build();
-    }
 
+    // signing keys from the keystore when one is configured, otherwise a key generated for this process only
     @Bean
-    JWKSource<SecurityContext> jwkSource(RSAKey rsaKey){
-        var jwkSet = new JWKSet(rsaKey);
-
-        return (jwkSelector, context)->jwkSelector.select(jwkSet);  
+    public JwtSigningKeys jwtSigningKeys(@Value("${security.jwt.algorithm:RS256}") String algorithm,
+                                         @Value("${security.jwt.keystore.path:}") String keystorePath,
+                                         @Value("${security.jwt.keystore.password:}") String keystorePassword,
+                                         @Value("${security.jwt.keystore.active-key:}") String activeKey){
+        JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(algorithm);
+        if(keystorePath.isBlank()){
+            log.warn("No security.jwt.keystore.path set, signing tokens with a generated {} key: tokens won't survive a restart", jwsAlgorithm);
+            return JwtSigningKeys.generate(jwsAlgorithm);
+        }
+        JwtSigningKeys keys = JwtSigningKeys.load(Path.of(keystorePath), keystorePassword.toCharArray(), jwsAlgorithm, activeKey);
+        log.info("Signing tokens with {} key {}, {} key(s) accepted", keys.algorithm(), keys.signingKeyId(), keys.size());
+        return keys;
     }
 
 
+    // the signature check runs once per token, later requests with the same token are a cache lookup
     @Bean
-    public JwtDecoder jwtDecoder(RSAKey rsaKey) throws JOSEException{
-        return NimbusJwtDecoder.withPublicKey(rsaKey.toRSAPublicKey())
-                            .build();
+    public CachingJwtDecoder jwtDecoder(JwtSigningKeys jwtSigningKeys,
+                                        @Value("${security.jwt-cache.max-ttl:30m}") Duration maxTtl,
+                                        @Value("${security.jwt-cache.max-size:10000}") long maxSize){
+        return new CachingJwtDecoder(jwtSigningKeys.decoder(), maxTtl, maxSize);
     }
 
 
     @Bean
-    public JwtEncoder jwtEncoder(JWKSource<SecurityContext> jwkSource){
-        return new NimbusJwtEncoder(jwkSource);
+    public JwtEncoder jwtEncoder(JwtSigningKeys jwtSigningKeys){
+        return jwtSigningKeys.encoder();
     }
 
 
@@ -140,9 +142,20 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    // hashes are stored as {bcrypt}$2a$<cost>$..., the cost is calibrated to the target time at startup.
+    // old hashes without prefix or with another cost still match and are re-hashed on the next successful login
     @Bean
-    public BCryptPasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder(); //default costfactor is 10
+    public PasswordEncoder passwordEncoder(@Value("${security.password.target-hash-time:250ms}") Duration targetHashTime,
+                                           @Value("${security.password.min-cost:10}") int minCost,
+                                           @Value("${security.password.max-cost:14}") int maxCost,
+                                           ObjectProvider<MeterRegistry> meterRegistry){
+        int cost = BCryptCostCalibrator.calibrate(targetHashTime, minCost, maxCost);
+        CostAwareBCryptPasswordEncoder bcrypt = new CostAwareBCryptPasswordEncoder(cost);
+        meterRegistry.ifAvailable(bcrypt::bindTo);   //wrapped below, so boot wouldn't find it as a MeterBinder
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);  //hashes saved before the prefix existed
+        return encoder;
     }
 
    
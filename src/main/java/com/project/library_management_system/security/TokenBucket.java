@@ -0,0 +1,34 @@
+package com.project.library_management_system.security;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// token bucket kept as a single "theoretical arrival time" (GCRA): each request pushes it one
+// interval further, a request is refused once it runs more than capacity intervals ahead of now.
+// one cas per request, no lock and no refill thread
+final class TokenBucket {
+
+    private final long interval;
+    private final long burst;
+    private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(int capacity, Duration period){
+        this.interval = Math.max(1, period.toNanos() / capacity);
+        this.burst = interval * capacity;
+    }
+
+    //0 when a token was taken, otherwise the nanos until the next one is available
+    long tryConsume(long now){
+        while(true){
+            long current = arrival.get();
+            long next = Math.max(current, now) + interval;
+            long ahead = next - now;
+            if(ahead > burst){
+                return ahead - burst;
+            }
+            if(arrival.compareAndSet(current, next)){
+                return 0;
+            }
+        }
+    }
+}
@@ -3,6 +3,11 @@ package com.project.library_management_system.user;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.project.library_management_system.loan.Loan;
 
@@ -13,6 +18,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
@@ -21,7 +27,13 @@ import jakarta.validation.constraints.NotNull;
 
 
 @Entity
-@Table(name="users")
+@Table(name="users", indexes = {   //created by the V1 migration
+    @Index(name = "ix_users_name", columnList = "name"),
+    @Index(name = "ix_users_approved", columnList = "approved"),
+    @Index(name = "ix_users_role", columnList = "role")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-email")   //email -> id, so a lookup by email can be answered from the cache too
 public class User {
     
     @Id
@@ -31,6 +43,7 @@ public class User {
     @NotBlank
     private String name;
 
+    @NaturalId(mutable = true)   //an admin can change it, hibernate then moves the cached mapping
     @Column(unique = true)
     @Email
     private String email;
@@ -15,8 +15,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.project.library_management_system.config.SqlBudget;
 import com.project.library_management_system.exception.NotFoundException;
-import com.project.library_management_system.loan.Loan;
+import com.project.library_management_system.loan.LoanView;
+import com.project.library_management_system.loan.LoanRepository;
+import com.project.library_management_system.security.CustomUserDetailsService;
+import com.project.library_management_system.security.RefreshTokenService;
 
 import jakarta.validation.Valid;
 
@@ -28,19 +32,29 @@ public class UserController {
 
     private static String error = "Users are not found";
     private UserRepository userRepository;
+    private LoanRepository loanRepository;
+    private CustomUserDetailsService userDetailsService;
+    private RefreshTokenService refreshTokens;
 
-    public UserController(UserRepository userRepository){
+    public UserController(UserRepository userRepository, LoanRepository loanRepository, CustomUserDetailsService userDetailsService,
+                          RefreshTokenService refreshTokens){
         this.userRepository=userRepository;
+        this.loanRepository=loanRepository;
+        this.userDetailsService=userDetailsService;
+        this.refreshTokens=refreshTokens;
     }
 
     @GetMapping
-    public List<User> findAllUsers(){
-        return this.userRepository.findAll();
+    @SqlBudget(1)
+    public List<UserView> findAllUsers(){
+        return this.userRepository.findAllViews();
     }
 
+    //both single user lookups go through the second-level cache
     @GetMapping("/{id}")
-    public User findById(@PathVariable Long id){
-        Optional<User> optional = userRepository.findById(id);
+    @SqlBudget(1)
+    public UserView findById(@PathVariable Long id){
+        Optional<UserView> optional = userRepository.findById(id).map(UserView::from);
         if(optional.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -49,8 +63,9 @@ public class UserController {
     }
 
     @GetMapping("/by-email")
-    public User findByEmail(@RequestParam String email){
-        Optional<User> optional=userRepository.findByEmail(email);
+    @SqlBudget(1)
+    public UserView findByEmail(@RequestParam String email){
+        Optional<UserView> optional=userRepository.findCachedByEmail(email).map(UserView::from);
         if(optional.isEmpty()){
             throw new NotFoundException("User doesn't exists");
         }
@@ -59,8 +74,9 @@ public class UserController {
     }
 
     @GetMapping("/by-name")
-    public List<User> findAllByName(@RequestParam String name){
-        List<User> users= userRepository.findAllByName(name);
+    @SqlBudget(1)
+    public List<UserView> findAllByName(@RequestParam String name){
+        List<UserView> users= userRepository.findViewsByName(name);
         if(users.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -70,18 +86,20 @@ public class UserController {
 
 
     @GetMapping("/{id}/loans")
-    public List<Loan> findLoans(@PathVariable Long id){
-        Optional<User> optional = userRepository.findById(id);
-        if(optional.isEmpty()){
+    @SqlBudget(2)   //the existence check runs only when the user has no loans
+    public List<LoanView> findLoans(@PathVariable Long id){
+        List<LoanView> loans = loanRepository.findViewsByUserId(id);
+        if(loans.isEmpty() && !userRepository.existsById(id)){
             throw new NotFoundException(error);
         }
 
-        return optional.get().getLoans();
+        return loans;
     }
 
     @GetMapping("/approved")
-    public List<User> findAllApproved(){
-        List<User> users = userRepository.findAllByApproved(true);
+    @SqlBudget(1)
+    public List<UserView> findAllApproved(){
+        List<UserView> users = userRepository.findViewsByApproved(true);
         if(users.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -90,8 +108,9 @@ public class UserController {
     }
 
     @GetMapping("/non-approved")
-    public List<User> findAllNonApproved(){
-        List<User> users = userRepository.findAllByApproved(false);
+    @SqlBudget(1)
+    public List<UserView> findAllNonApproved(){
+        List<UserView> users = userRepository.findViewsByApproved(false);
         if(users.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -101,8 +120,9 @@ public class UserController {
 
 
     @GetMapping("/by-role")
-    public List<User> findAllByRole(@RequestParam Role role){
-        List<User> users = userRepository.findAllByRole(role);
+    @SqlBudget(1)
+    public List<UserView> findAllByRole(@RequestParam Role role){
+        List<UserView> users = userRepository.findViewsByRole(role);
         if(users.isEmpty()){
             throw new NotFoundException(error);
         }
@@ -121,6 +141,8 @@ public class UserController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/{id}")
     void deleteById(@PathVariable Long id){
+        userRepository.findById(id)
+            .ifPresent(user -> userDetailsService.evict(user.getEmail()));
         userRepository.deleteById(id);
     }
 
@@ -130,6 +152,7 @@ public class UserController {
     void update(@PathVariable Long id, @RequestBody @Valid User updatedUser){
         User user=userRepository.findById(id)
             .map(existingUser ->{
+                userDetailsService.evict(existingUser.getEmail()); //approval, role or email may change
                 existingUser.setApproved(updatedUser.isApproved());
                 existingUser.setName(updatedUser.getName());
                 existingUser.setEmail(updatedUser.getEmail());
@@ -141,6 +164,19 @@ public class UserController {
             .orElseThrow(()-> new NotFoundException(error));
 
             userRepository.save(user);
+            userDetailsService.evict(user.getEmail());
+            refreshTokens.revokeAll(id); //sessions must log in again to pick up the new role/approval
+    }
+
+
+    //signs the user out everywhere: no refresh token issued so far can be used again
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/{id}/refresh-tokens")
+    void revokeRefreshTokens(@PathVariable Long id){
+        if(!userRepository.existsById(id)){
+            throw new NotFoundException(error);
+        }
+        refreshTokens.revokeAll(id);
     }
 
 
@@ -0,0 +1,13 @@
+package com.project.library_management_system.user;
+
+import java.util.Optional;
+
+import org.springframework.transaction.annotation.Transactional;
+
+// repository fragment: User.email is the natural id, so hibernate can resolve it through the
+// second-level cache (email -> id -> row) and skip the database when both are cached
+public interface UserEmailLookup {
+
+    @Transactional(readOnly = true)
+    Optional<User> findCachedByEmail(String email);
+}
@@ -0,0 +1,23 @@
+package com.project.library_management_system.user;
+
+import java.util.Optional;
+
+import org.hibernate.Session;
+
+import jakarta.persistence.EntityManager;
+
+public class UserEmailLookupImpl implements UserEmailLookup {
+
+    private EntityManager entityManager;
+
+    public UserEmailLookupImpl(EntityManager entityManager){
+        this.entityManager=entityManager;
+    }
+
+    @Override
+    public Optional<User> findCachedByEmail(String email){
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(email);
+    }
+}
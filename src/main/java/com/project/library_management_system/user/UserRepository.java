@@ -5,14 +5,28 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-public interface UserRepository extends JpaRepository <User, Long> {
+public interface UserRepository extends JpaRepository <User, Long>, UserEmailLookup {
 
     Optional<User> findByEmail(String email);
 
+    boolean existsByEmail(String email);
+
     List<User> findAllByName(String name);
 
     List<User> findAllByApproved(boolean approved);
 
     List<User> findAllByRole(Role role);
+
+    //read side of the api: UserView's columns only, the password hash never leaves the database
+    @Query("select new com.project.library_management_system.user.UserView(u.id, u.name, u.email, u.role, u.approved) "
+            + "from User u order by u.id")
+    List<UserView> findAllViews();
+
+    List<UserView> findViewsByName(String name);
+
+    List<UserView> findViewsByApproved(boolean approved);
+
+    List<UserView> findViewsByRole(Role role);
 }
@@ -0,0 +1,13 @@
+package com.project.library_management_system.user;
+
+
+
+// what the api shows of an account: no password hash and no loans, selected as just these columns
+public record UserView(Long id, String name, String email, Role role, boolean approved) {
+
+    // for lookups answered by the second-level cache, which hands back entities
+    public static UserView from(User user){
+        return new UserView(user.getId(), user.getName(), user.getEmail(), user.getRole(), user.isApproved());
+    }
+
+}
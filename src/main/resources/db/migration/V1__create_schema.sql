@@ -0,0 +1,71 @@
+-- schema owned by flyway, hibernate only validates it (spring.jpa.hibernate.ddl-auto=validate).
+-- every column a repository filters on has an index, a new derived query needs its index in a new migration
+
+-- ids are handed out in blocks of 50 (pooled optimizer), generated ones start past the seeded rows
+create sequence book_seq start with 101 increment by 50;
+
+create table book (
+    id bigint not null,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    available boolean not null,
+    constraint pk_book primary key (id)
+);
+
+-- findAllByTitle, findAllByAuthor, findAllByAvailable (the leading column of the composite)
+create index ix_book_title on book (title);
+create index ix_book_author on book (author);
+create index ix_book_available_author on book (available, author);
+
+create table users (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    email varchar(255),
+    password varchar(255),
+    role varchar(16) not null,
+    approved boolean not null,
+    constraint pk_users primary key (id),
+    constraint ux_users_email unique (email),
+    constraint ck_users_role check (role in ('ADMIN', 'USER'))
+);
+
+-- findAllByName, findAllByApproved, findAllByRole
+create index ix_users_name on users (name);
+create index ix_users_approved on users (approved);
+create index ix_users_role on users (role);
+
+create table loan (
+    id bigint generated by default as identity,
+    book_id bigint,
+    user_id bigint,
+    loan_date date,
+    return_date date,
+    returned boolean not null,
+    constraint pk_loan primary key (id)
+);
+
+-- findAllByReturned and the active loans of one user; findAllByUserId; findLatestByBookId (a book has few loans, they are sorted after the seek)
+create index ix_loan_returned_user on loan (returned, user_id);
+create index ix_loan_user on loan (user_id);
+create index ix_loan_book on loan (book_id);
+
+create table refresh_token (
+    id bigint generated by default as identity,
+    token_hash varchar(43) not null,
+    user_id bigint not null,
+    family uuid not null,
+    expires_at timestamp(6) with time zone not null,
+    used boolean not null,
+    revoked boolean not null,
+    constraint pk_refresh_token primary key (id)
+);
+
+create unique index ux_refresh_token_hash on refresh_token (token_hash);
+create index ix_refresh_token_family on refresh_token (family);
+create index ix_refresh_token_user on refresh_token (user_id);
+
+-- foreign keys last, so they use the indexes above instead of getting one of their own
+alter table loan add constraint fk_loan_book foreign key (book_id) references book (id);
+alter table loan add constraint fk_loan_user foreign key (user_id) references users (id);
+alter table refresh_token add constraint fk_refresh_token_user foreign key (user_id) references users (id) on delete cascade;
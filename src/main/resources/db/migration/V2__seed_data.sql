@@ -1,11 +1,15 @@
-insert into Book(title, author, isbn, available)
-values ('Don Quixote', 'Miguel de Cervantes', '978-0060934347', true);
+-- demo catalog, accounts and loans
 
-insert into Book(title, author, isbn, available)
-values ('Pride and Prejudice', 'Jane Austen', '978-1503290563', true);
+insert into Book(id, title, author, isbn, available)
+values (1, 'Don Quixote', 'Miguel de Cervantes', '978-0060934347', false);
 
-insert into Book(title, author, isbn, available)
-values ('The Hobbit', 'J.R.R. Tolkien', '978-0547928227', true);
+insert into Book(id, title, author, isbn, available)
+values (2, 'Pride and Prejudice', 'Jane Austen', '978-1503290563', false);
+
+insert into Book(id, title, author, isbn, available)
+values (3, 'The Hobbit', 'J.R.R. Tolkien', '978-0547928227', true);
+
+-- book_seq starts at 101 (V1), past these ids
 
 
 
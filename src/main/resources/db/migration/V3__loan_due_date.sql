@@ -0,0 +1,18 @@
+-- due date of a loan, set at checkout to loan_date + loans.loan-period. existing active loans with a return date
+-- were given it as the planned one, that becomes their due date; the others get the default 14 days
+alter table loan add column due_date date;
+update loan set due_date = case when returned = false and return_date is not null then return_date
+                                else loan_date + interval '14' day end
+where loan_date is not null;
+
+-- GET /api/loans/overdue and the overdue scanner: active loans seeked by due date
+create index ix_loan_returned_due on loan (returned, due_date);
+
+-- where an incremental job stopped, as the (date, id) key of the last row it handled
+create table job_checkpoint (
+    name varchar(64) not null,
+    last_date date not null,
+    last_id bigint not null,
+    updated_at timestamp(6) with time zone not null,
+    constraint pk_job_checkpoint primary key (name)
+);
@@ -0,0 +1,13 @@
+-- loans started per day, the rollup behind /api/loans/stats: scope 'ALL' (scope_id 0), 'BOOK' (book id) and
+-- 'USER' (user id). LoanRollup keeps it in the transaction of every loan change and fills it from the loan table
+-- at the first start after this migration (or whenever the 'loan-rollup' job_checkpoint row is missing)
+create table loan_daily (
+    scope varchar(8) not null,
+    scope_id bigint not null,
+    loan_day date not null,
+    loans bigint not null,
+    constraint pk_loan_daily primary key (scope, scope_id, loan_day)
+);
+
+-- ranges over every book / user of a scope (top books, active borrowers), answered from the index alone
+create index ix_loan_daily_scope_day on loan_daily (scope, loan_day, scope_id, loans);
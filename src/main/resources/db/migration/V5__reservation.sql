@@ -0,0 +1,18 @@
+-- waiting lists of books on loan, first come first served. position 1 is next in line and gets the book when the
+-- loan ends; the positions behind move up when someone leaves the queue, so a position is read, never counted
+create table reservation (
+    id bigint generated by default as identity,
+    book_id bigint not null,
+    user_id bigint not null,
+    position int not null,
+    created_at timestamp(6) with time zone not null,
+    constraint pk_reservation primary key (id),
+    constraint ux_reservation_book_user unique (book_id, user_id)
+);
+
+-- the queue of a book in order, its head and its tail; the reservations of a user
+create index ix_reservation_book_position on reservation (book_id, position);
+create index ix_reservation_user on reservation (user_id);
+
+alter table reservation add constraint fk_reservation_book foreign key (book_id) references book (id) on delete cascade;
+alter table reservation add constraint fk_reservation_user foreign key (user_id) references users (id) on delete cascade;
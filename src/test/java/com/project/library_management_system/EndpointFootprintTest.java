@@ -0,0 +1,100 @@
+package com.project.library_management_system;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// sql statements of every plain GET endpoint against the seed data, with an empty
+// second-level cache and again once the first call has filled it.
+// the statement budget (cold) keeps lazy loads and N+1 selects from creeping back into the read side.
+// the @SqlBudget of the endpoints is enforced here too, a statement over it fails the request
+@SpringBootTest(properties = "sql.monitor.enforce-budgets=true")
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@example.com", roles = "ADMIN")
+public class EndpointFootprintTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ParameterizedTest
+    @CsvSource({
+        "/api/books,                                       1",
+        "/api/books/1,                                     1",
+        "/api/books/by-author?author=Jane Austen,          1",
+        "/api/books/by-title?title=The Hobbit,             1",
+        "/api/books/available,                             1",
+        "/api/books/non-available,                         1",
+        "/api/users,                                       1",
+        "/api/users/1002,                                  1",
+        "/api/users/by-email?email=johndoe@example.com,    1",
+        "/api/users/by-name?name=John Doe,                 1",
+        "/api/users/approved,                              1",
+        "/api/users/non-approved,                          1",
+        "/api/users/by-role?role=USER,                     1",
+        "/api/users/1002/loans,                            1",
+        "/api/users/1004/loans,                            2",
+        "/api/loans,                                       1",
+        "/api/loans/1,                                     1",
+        "/api/loans/by-userId?id=1002,                     1",
+        "/api/loans/by-userEmail?email=johndoe@example.com,  1",
+        "/api/loans/by-userId?id=1004,                     2",
+        "/api/loans/by-userEmail?email=bzrbvazm@gmail.com, 2",
+        "/api/loans/by-bookId?id=2,                        2",
+        "/api/loans/returned,                              1",
+        "/api/loans/active,                                1",
+        "/api/loans/overdue,                               1",
+        "/api/loans/stats/summary,                         1",
+        "/api/loans/stats/daily,                           1",
+        "/api/loans/stats/weekly,                          1",
+        "/api/loans/stats/top-books,                       1"
+    })
+    void getEndpoint_staysWithinItsStatementBudget(String uri, long maxQueries) throws Exception {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        Statistics statistics = sessionFactory.getStatistics();
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+
+        mockMvc.perform(get(uri)).andExpect(status().isOk());
+        long queries = statistics.getPrepareStatementCount();
+
+        //a warm second-level cache never costs more than a cold one
+        statistics.clear();
+        mockMvc.perform(get(uri)).andExpect(status().isOk());
+        long cached = statistics.getPrepareStatementCount();
+
+        assertThat(queries).as(uri).isLessThanOrEqualTo(maxQueries);
+        assertThat(cached).as(uri + " (cached)").isLessThanOrEqualTo(queries);
+    }
+
+    // a poll with the current etag is a 304: no statement, no body
+    @ParameterizedTest
+    @ValueSource(strings = {"/api/books", "/api/books/1", "/api/books/available"})
+    void conditionalGet_withCurrentEtag_costsNoStatement(String uri) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String etag = mockMvc.perform(get(uri)).andReturn().getResponse().getHeader("ETag");
+        statistics.clear();
+
+        MvcResult result = mockMvc.perform(get(uri).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+}
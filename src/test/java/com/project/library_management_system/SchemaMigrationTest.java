@@ -0,0 +1,44 @@
+package com.project.library_management_system;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the flyway schema gives every derived query an index to seek on instead of a table scan
+@JdbcTest
+public class SchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "select * from book where author = 'Jane Austen'                 | IX_BOOK_AUTHOR",
+        "select * from book where title = 'Emma'                         | IX_BOOK_TITLE",
+        "select * from book where available = false                      | IX_BOOK_AVAILABLE_AUTHOR",
+        "select * from book where available = true and author = 'Austen' | IX_BOOK_AVAILABLE_AUTHOR",
+        "select * from users where name = 'John Doe'                     | IX_USERS_NAME",
+        "select * from users where role = 'ADMIN'                        | IX_USERS_ROLE",
+        "select * from users where approved = false                      | IX_USERS_APPROVED",
+        "select * from users where email = 'johndoe@example.com'         | UX_USERS_EMAIL",
+        "select * from loan where returned = false and user_id = 1002    | IX_LOAN_RETURNED_USER",
+        "select * from loan where user_id = 1002                         | IX_LOAN_USER",
+        "select * from loan where book_id = 2 order by returned, loan_date desc | IX_LOAN_BOOK",
+        "select * from loan where returned = false and due_date < current_date order by due_date, id | IX_LOAN_RETURNED_DUE"
+    })
+    void derivedQueryColumns_areIndexed(String query, String index) {
+        String plan = jdbcTemplate.queryForObject("explain " + query, String.class);
+
+        assertThat(plan.toUpperCase()).contains(index);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"book, 3", "users, 4", "loan, 3"})
+    void seedMigration_loadsTheDemoData(String table, int rows) {
+        assertThat(jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class)).isEqualTo(rows);
+    }
+}
@@ -0,0 +1,184 @@
+package com.project.library_management_system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.loan.Loan;
+import com.project.library_management_system.loan.LoanRepository;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Compares the fixed tomcat platform pool with the "virtual" profile under the same blocking jdbc load.
+// Not part of the normal build, run it with:  mvn test -Ploadtest
+// knobs: -Dloadtest.concurrency=400 -Dloadtest.seconds=15 -Dloadtest.books=500
+@Tag("loadtest")
+public class ThreadModeLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 400);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.seconds", 15));
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final int BOOKS = Integer.getInteger("loadtest.books", 500);
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadModeLoadTest.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compareThroughputAndP99_platformVsVirtualThreads(TestReporter reporter) throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-9s %-11s %12s %10s %10s %8s", "mode", "endpoint", "req/s", "p50 ms", "p99 ms", "errors"));
+
+        for (String mode : List.of("platform", "virtual")) {
+            try (ConfigurableApplicationContext app = start(mode)) {
+                seed(app);
+                int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+                String token = login(port);
+
+                for (String path : List.of("/api/books", "/api/loans")) {
+                    run(port, path, token, WARMUP);
+                    Result result = run(port, path, token, DURATION);
+                    report.add(String.format("%-9s %-11s %12.1f %10.2f %10.2f %8d",
+                            mode, path, result.throughput(), result.percentile(0.50), result.percentile(0.99), result.errors()));
+                    reporter.publishEntry(Map.of(
+                            mode + " " + path + " req/s", String.format("%.1f", result.throughput()),
+                            mode + " " + path + " p99 ms", String.format("%.2f", result.percentile(0.99))));
+
+                    //a throughput is only worth comparing when every request was answered with a 200
+                    assertThat(result.latenciesNanos()).as(mode + " " + path).isNotEmpty();
+                    assertThat(result.errors()).as(mode + " " + path + " errors").isZero();
+                }
+            }
+        }
+
+        log.info("concurrency={} duration={}s books={}\n{}", CONCURRENCY, DURATION.toSeconds(), BOOKS, String.join("\n", report));
+    }
+
+
+    private ConfigurableApplicationContext start(String mode) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(LibraryManagementSystemApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest-" + mode,
+                        "spring.jpa.show-sql=false",
+                        "security.rate-limit.enabled=false", //measure the thread modes, not the limiter
+                        "logging.level.root=WARN",
+                        "logging.level.com.project.library_management_system.ThreadModeLoadTest=INFO");
+        if (mode.equals("virtual")) {
+            builder.profiles("virtual");
+        }
+        return builder.run();
+    }
+
+    private void seed(ConfigurableApplicationContext app) {
+        BookRepository books = app.getBean(BookRepository.class);
+        LoanRepository loans = app.getBean(LoanRepository.class);
+        User patron = app.getBean(UserRepository.class).findByEmail("johndoe@example.com").orElseThrow();
+
+        List<Book> saved = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            saved.add(new Book(null, "Load Test Book " + i, "Author " + (i % 50), "lt-" + i, i % 3 != 0, null));
+        }
+        saved = books.saveAll(saved);
+
+        List<Loan> history = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i += 3) {
+            history.add(new Loan(null, saved.get(i), patron, LocalDate.now().minusDays(i % 30), null, false));
+        }
+        loans.saveAll(history);
+    }
+
+    private String login(int port) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@example.com\",\"password\":\"adminPass123\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+
+    private Result run(int port, String path, String token, Duration duration) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + path);
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        // the load generator itself uses virtual threads so it never is the bottleneck
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().executor(workers).build();
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                futures.add(workers.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    HttpRequest request = HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token).GET().build();
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception ex) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+
+            List<long[]> perWorker = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                perWorker.add(future.get());
+            }
+            long[] all = perWorker.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(all, errors.get(), duration);
+        }
+    }
+
+    private record Result(long[] latenciesNanos, long errors, Duration duration) {
+
+        double throughput() {
+            return latenciesNanos.length / (duration.toMillis() / 1000.0);
+        }
+
+        double percentile(double p) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(latenciesNanos.length - 1, Math.ceil(p * latenciesNanos.length) - 1);
+            return latenciesNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.project.library_management_system.book;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class BookAvailabilityTest {
+
+    private BookRepository bookRepository;
+    private BookAvailability availability;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        availability = new BookAvailability(bookRepository, mock(PlatformTransactionManager.class));
+        when(bookRepository.streamAll()).thenAnswer(invocation -> Stream.of(
+                new BookView(1L, "Don Quixote", "Miguel de Cervantes", null, false),
+                new BookView(2L, "Pride and Prejudice", "Jane Austen", null, true),
+                new BookView(3L, "The Hobbit", "J.R.R. Tolkien", null, true)));
+        availability.load();
+    }
+
+    @Test
+    void load_countsTheTable() {
+        assertThat(availability.summary()).isEqualTo(new AvailabilitySummary(3, 2, 1));
+        assertThat(availability.ids(true, 0, 10)).containsExactly(2L, 3L);
+        assertThat(availability.ids(false, 0, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void load_keepsAChangeThatCommitsWhileTheTableIsRead() {
+        when(bookRepository.streamAll()).thenAnswer(invocation -> Stream.of(
+                new BookView(1L, "Don Quixote", "Miguel de Cervantes", null, false),
+                new BookView(2L, "Pride and Prejudice", "Jane Austen", null, true)).peek(book -> {
+                    if(book.id() == 2L){   //book 2 is lent after its row was read
+                        availability.onBookChanged(new BookChangedEvent(2L, "Pride and Prejudice", "Jane Austen", null, false, false));
+                    }
+                }));
+
+        availability.afterSingletonsInstantiated();
+
+        assertThat(availability.summary()).isEqualTo(new AvailabilitySummary(2, 0, 2));
+        assertThat(availability.ids(false, 0, 10)).containsExactly(1L, 2L);
+
+        availability.onBookChanged(new BookChangedEvent(1L, "Don Quixote", "Miguel de Cervantes", null, true, false));
+        assertThat(availability.summary()).isEqualTo(new AvailabilitySummary(2, 1, 1));
+    }
+
+    @Test
+    void events_moveTheCounters() {
+        availability.onBookChanged(new BookChangedEvent(2L, "Pride and Prejudice", "Jane Austen", null, false, false));
+        availability.onBookChanged(new BookChangedEvent(2L, "Pride and Prejudice", "Jane Austen", null, false, false));  //repeated, no effect
+        availability.onBooksImported(new BooksImportedEvent(List.of(
+                new BookChangedEvent(101L, "Dune", "Frank Herbert", null, true, false))));
+        availability.onBookChanged(BookChangedEvent.deleted(3L));
+
+        assertThat(availability.summary()).isEqualTo(new AvailabilitySummary(3, 1, 2));
+        assertThat(availability.ids(true, 0, 10)).containsExactly(101L);
+        assertThat(availability.ids(false, 0, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void ids_arePagedByKeyset() {
+        assertThat(availability.ids(true, 0, 1)).containsExactly(2L);
+        assertThat(availability.ids(true, 2, 1)).containsExactly(3L);
+        assertThat(availability.ids(true, 3, 1)).isEmpty();
+    }
+
+    @Test
+    void reconcile_rebuildsFromTheTableWhenItDrifted() {
+        when(bookRepository.streamAll()).thenAnswer(invocation -> Stream.of(
+                new BookView(1L, "Don Quixote", "Miguel de Cervantes", null, true),
+                new BookView(2L, "Pride and Prejudice", "Jane Austen", null, true)));
+
+        availability.reconcile();
+
+        assertThat(availability.summary()).isEqualTo(new AvailabilitySummary(2, 2, 0));
+    }
+
+    @Test
+    void reconcile_keepsTheProjectionWhenItMatches() {
+        AvailabilitySummary before = availability.summary();
+
+        availability.reconcile();
+
+        assertThat(availability.summary()).isEqualTo(before);
+        verify(bookRepository, times(2)).streamAll();
+    }
+}
@@ -0,0 +1,139 @@
+package com.project.library_management_system.book;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.project.library_management_system.exception.BadRequestException;
+
+// the importer runs its own transaction per batch, so the test must not wrap it in one
+@DataJpaTest(properties = "books.import.batch-size=2")
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import(BookBulkImporter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BookBulkImporterTest {
+
+    @Autowired
+    private BookBulkImporter importer;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown(){
+        jdbcTemplate.update("delete from book where id > 3");   //keep the seeded books the loans point at
+    }
+
+    private static InputStream body(String content){
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importJson_insertsValidRowsAndReportsInvalidOnes(){
+        BulkImportReport report = importJson("""
+                [{"title": "Dune", "author": "Frank Herbert", "isbn": "978-0441013593"},
+                 {"author": "Nobody"},
+                 {"title": "Emma", "author": "Jane Austen", "available": false},
+                 {"title": "Ulysses", "author": "James Joyce", "available": "sometimes"},
+                 {"id": 1, "title": "Beloved", "author": "Toni Morrison"}]
+                """);
+
+        assertThat(report.received()).isEqualTo(5);
+        assertThat(report.imported()).isEqualTo(3);
+        assertThat(report.failed()).isEqualTo(2);
+        assertThat(report.errors()).extracting(BulkImportReport.RowError::row).containsExactly(2, 4);
+        assertThat(report.errors().get(0).message()).isEqualTo("title is required");
+
+        assertThat(bookRepository.findAllByAuthor("Jane Austen")).extracting(Book::isAvailable).contains(false);
+        assertThat(bookRepository.findById(1L).orElseThrow().getTitle()).isEqualTo("Don Quixote");  //ids are never taken from the input
+        assertThat(bookRepository.count()).isEqualTo(6);
+    }
+
+    @Test
+    void importJson_stopsAtMalformedJsonButKeepsEarlierBatches(){
+        BulkImportReport report = importJson("""
+                [{"title": "Dune", "author": "Frank Herbert"},
+                 {"title": "Emma", "author": "Jane Austen"},
+                 {"title": "Ulysses", "author"
+                """);
+
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.errors()).singleElement()
+                .satisfies(error -> assertThat(error.message()).startsWith("Malformed JSON"));
+    }
+
+    @Test
+    void importJson_rejectsANonArrayBody(){
+        assertThatThrownBy(() -> importer.importJson(body("{\"title\": \"Dune\"}")))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void importCsv_readsQuotedFieldsByHeaderName() throws Exception {
+        BulkImportReport report = importer.importCsv(body("""
+                author,title,available
+                "Tolstoy, Leo","War and Peace",true
+                Homer,"The \"\"Odyssey\"\"",false
+                Nobody,,true
+                Someone,Something,maybe
+                """));
+
+        assertThat(report.received()).isEqualTo(4);
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.errors()).extracting(BulkImportReport.RowError::row).containsExactly(3, 4);
+        assertThat(bookRepository.findAllByAuthor("Tolstoy, Leo")).extracting(Book::getTitle).containsExactly("War and Peace");
+        assertThat(bookRepository.findAllByTitle("The \"Odyssey\"")).singleElement()
+                .satisfies(book -> assertThat(book.isAvailable()).isFalse());
+    }
+
+    @Test
+    void importCsv_continuesAQuotedFieldOverLineBreaks() throws Exception {
+        BulkImportReport report = importer.importCsv(body(
+                "title,author\r\n" +
+                "\"Zen and the Art\r\nof Motorcycle Maintenance\",\"Pirsig, \"\"Bob\"\"\"\r\n" +
+                "Dune,Frank Herbert\r\n" +
+                "\"Never closed,Nobody\n" +
+                "Emma,Jane Austen\n"));
+
+        assertThat(report.received()).isEqualTo(3);
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.errors()).singleElement()
+                .satisfies(error -> assertThat(error.row()).isEqualTo(3))
+                .satisfies(error -> assertThat(error.message()).isEqualTo("unterminated quoted field"));
+        assertThat(bookRepository.findAllByAuthor("Pirsig, \"Bob\"")).extracting(Book::getTitle)
+                .containsExactly("Zen and the Art\nof Motorcycle Maintenance");
+        assertThat(bookRepository.findAllByAuthor("Frank Herbert")).hasSize(1);
+    }
+
+    @Test
+    void importCsv_requiresTitleAndAuthorColumns(){
+        assertThatThrownBy(() -> importer.importCsv(body("name,isbn\nDune,1\n")))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private BulkImportReport importJson(String json){
+        try{
+            return importer.importJson(body(json));
+        }catch(java.io.IOException e){
+            throw new IllegalStateException(e);
+        }
+    }
+}
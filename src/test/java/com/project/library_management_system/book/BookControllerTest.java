@@ -2,6 +2,7 @@ package com.project.library_management_system.book;
 
 
 
+import com.project.library_management_system.loan.LoanService;
 import com.project.library_management_system.security.CustomUserDetailsService;
 import com.project.library_management_system.security.SecurityConfig;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,11 +10,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -24,10 +29,11 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 
 @WebMvcTest(BookController.class)
 /// importing securityConfig for checking the security together
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, BookVersions.class})
 public class BookControllerTest {
     @Autowired
     MockMvc mockMvc;
@@ -35,11 +41,30 @@ public class BookControllerTest {
     @MockitoBean
     BookRepository bookRepository;
 
+    @MockitoBean
+    BookExporter bookExporter;
+
+    @MockitoBean
+    BookBulkImporter bookBulkImporter;
+
+    @MockitoBean
+    BookSearchIndex bookSearchIndex;
+
+    @MockitoBean
+    BookAvailability bookAvailability;
+
+    @MockitoBean
+    LoanService loanService;
+
     @MockitoBean
     CustomUserDetailsService customUserDetailsService;  ///importing this for the security
 
+    @Autowired
+    BookVersions bookVersions;
+
     private Book mockBook;
     private List<Book> mockBookList;
+    private List<BookView> mockBookViewList;
 
     @BeforeEach
     void setUp() {
@@ -50,6 +75,9 @@ public class BookControllerTest {
         mockBook.setAvailable(true);
 
         mockBookList = List.of(mockBook, new Book(2L, "1984", "George Orwell", "222", true, null));
+        mockBookViewList = mockBookList.stream()
+                .map(BookView::from)
+                .toList();
     }
     private String bookToJson(Book book) {
         return "{\"title\":\"" + book.getTitle() + "\", \"author\":\"" + book.getAuthor() + "\", \"isbn\":\"" + book.getIsbn() + "\", \"available\":" + book.isAvailable() + "}";
@@ -61,7 +89,7 @@ public class BookControllerTest {
     // Simulate an authenticated user (required for secured endpoints)
     void findAllBooks_shouldReturnListOfBooks() throws Exception {
         // ARRANGE: Stub the repository to return the mock list
-        when(bookRepository.findAll()).thenReturn(mockBookList);
+        when(bookRepository.findAllViews()).thenReturn(mockBookViewList);
 
         // ACT & ASSERT
         mockMvc.perform(get("/api/books")
@@ -71,13 +99,13 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$[0].title", is("The Great Gatsby")));
 
         // VERIFY: Ensure the controller called the repository method exactly once
-        verify(bookRepository, times(1)).findAll();
+        verify(bookRepository, times(1)).findAllViews();
     }
 
     @Test
     @WithMockUser(roles = "USER")
     void findAllBooks_shouldReturnEmptyList() throws Exception{
-        when(bookRepository.findAll()).thenReturn(Collections.emptyList());
+        when(bookRepository.findAllViews()).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/api/books")
                     .contentType(MediaType.APPLICATION_JSON))
@@ -85,6 +113,57 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$", hasSize(0)));
     }
 
+    @Test
+    @WithMockUser(roles = "USER")
+    void findPage_shouldReturnPageWithNextLink_whenPageIsFull() throws Exception{
+        List<BookView> page = List.of(
+                new BookView(11L, "1984", "George Orwell", "222", true),
+                new BookView(12L, "Animal Farm", "George Orwell", "333", false));
+        when(bookRepository.findPageAfter(10L, Limit.of(2))).thenReturn(page);
+
+        mockMvc.perform(get("/api/books")
+                    .param("after", "10")
+                    .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].id", is(12)))
+                .andExpect(header().string("Link", "<http://localhost/api/books?after=12&limit=2>; rel=\"next\""));
+
+        verify(bookRepository, never()).findAllViews();
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void findPage_shouldOmitNextLink_onLastPage() throws Exception{
+        when(bookRepository.findPageAfter(0L, Limit.of(100)))
+                .thenReturn(List.of(new BookView(1L, "1984", "George Orwell", "222", true)));
+
+        mockMvc.perform(get("/api/books")
+                    .param("after", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void streamAllBooks_shouldWriteNdjson() throws Exception{
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bookExporter).writeNdjson(any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/books/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     void findById_shouldReturnBookWhenFound() throws Exception{
@@ -111,6 +190,11 @@ public class BookControllerTest {
     void create_shouldCreateNewBook() throws Exception{
         Book newBook = new Book(null, "New Title", "New Author", "123", true, null);
         String newBookJson = bookToJson(newBook);
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
+            Book saved = invocation.getArgument(0);
+            saved.setId(3L);   //like the sequence would
+            return saved;
+        });
 
         mockMvc.perform(post("/api/books")
                         .with(csrf()) // Required for non-GET requests in Spring Security
@@ -129,7 +213,7 @@ public class BookControllerTest {
                 .with(csrf()))
                 .andExpect(status().isNoContent());
 
-        verify(bookRepository, times(1)).deleteById(bookIdToDelete);
+        verify(loanService, times(1)).deleteBook(bookIdToDelete);
     }
 
 
@@ -142,7 +226,156 @@ public class BookControllerTest {
                 .with(csrf()))
                 .andExpect(status().isForbidden());
 
-        verify(bookRepository, never()).deleteById(anyLong());
+        verify(loanService, never()).deleteBook(anyLong());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void search_shouldReturnBooksInIndexOrder() throws Exception {
+        when(bookSearchIndex.search("orwell gatsby", 0, 20))
+                .thenReturn(new BookSearchIndex.SearchPage(2, List.of(2L, 1L)));
+        when(bookRepository.findViewsByIds(List.of(2L, 1L))).thenReturn(List.of(
+                new BookView(1L, "The Great Gatsby", "F. Scott Fitzgerald", null, true),
+                new BookView(2L, "1984", "George Orwell", "222", true)));
+
+        mockMvc.perform(get("/api/books/search").param("q", "orwell gatsby"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(2)))
+                .andExpect(jsonPath("$[1].id", is(1)));
     }
 
+    @Test
+    @WithMockUser(roles = "USER")
+    void search_withoutHits_shouldNotQueryTheDatabase() throws Exception {
+        when(bookSearchIndex.search("nothing", 0, 20)).thenReturn(new BookSearchIndex.SearchPage(0, List.of()));
+
+        mockMvc.perform(get("/api/books/search").param("q", "nothing"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "0"))
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        verify(bookRepository, never()).findViewsByIds(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void bulkImportJson_shouldReturnTheReport() throws Exception {
+        when(bookBulkImporter.importJson(any())).thenReturn(new BulkImportReport(2, 1, 1,
+                List.of(new BulkImportReport.RowError(2, "title is required"))));
+
+        mockMvc.perform(post("/api/books/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"title\":\"A\",\"author\":\"B\"},{\"author\":\"C\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(1)))
+                .andExpect(jsonPath("$.errors[0].row", is(2)));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void bulkImportCsv_shouldUseTheCsvReader() throws Exception {
+        when(bookBulkImporter.importCsv(any())).thenReturn(new BulkImportReport(1, 1, 0, List.of()));
+
+        mockMvc.perform(post("/api/books/bulk")
+                        .with(csrf())
+                        .contentType("text/csv")
+                        .content("title,author\nA,B\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received", is(1)));
+
+        verify(bookBulkImporter, never()).importJson(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void bulkImport_shouldReturnForbiddenForUsers() throws Exception {
+        mockMvc.perform(post("/api/books/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(bookBulkImporter);
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void availabilitySummary_shouldComeFromTheProjection() throws Exception {
+        when(bookAvailability.summary()).thenReturn(new AvailabilitySummary(3, 1, 2));
+
+        mockMvc.perform(get("/api/books/availability/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(3)))
+                .andExpect(jsonPath("$.available", is(1)))
+                .andExpect(jsonPath("$.onLoan", is(2)));
+
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void availabilityIds_shouldLinkToTheNextPage() throws Exception {
+        when(bookAvailability.ids(false, 0, 2)).thenReturn(List.of(1L, 2L));
+
+        mockMvc.perform(get("/api/books/availability/ids").param("available", "false").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().string("Link", org.hamcrest.Matchers.containsString("after=2")));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void findAllBooks_shouldAnswer304WithoutQueryingForTheCurrentEtag() throws Exception {
+        when(bookRepository.findAllViews()).thenReturn(mockBookViewList);
+
+        String etag = mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/books").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        verify(bookRepository, times(1)).findAllViews();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findById_etagShouldMoveWhenTheBookIsUpdated() throws Exception {
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(mockBook));
+        String etag = mockMvc.perform(get("/api/books/{id}", 1L))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(put("/api/books/{id}", 1L)
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookToJson(mockBook)))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/books/{id}", 1L).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void etags_shouldFollowLoanChangesOfOtherBooksOnlyInTheLists() throws Exception {
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(mockBook));
+        when(bookRepository.findViewsByAvailable(true)).thenReturn(mockBookViewList);
+        String bookTag = mockMvc.perform(get("/api/books/{id}", 1L)).andReturn().getResponse().getHeader("ETag");
+        String listTag = mockMvc.perform(get("/api/books/available")).andReturn().getResponse().getHeader("ETag");
+
+        //a checkout of book 2, as LoanService publishes it
+        bookVersions.onBookChanged(new BookChangedEvent(2L, "1984", "George Orwell", "222", false, false));
+
+        mockMvc.perform(get("/api/books/{id}", 1L).header("If-None-Match", bookTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/books/available").header("If-None-Match", listTag))
+                .andExpect(status().isOk());
+    }
 }
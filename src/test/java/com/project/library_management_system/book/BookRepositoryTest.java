@@ -6,11 +6,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -84,6 +86,30 @@ public class BookRepositoryTest {
         assertThat(books).contains(book1);
     }
 
+    @Test
+    void givenBooksCreated_whenFindPageAfter_thenSeeksPastCursor(){
+        entityManager.persist(book1);
+        entityManager.persist(book2);
+
+        List<BookView> firstPage = bookRepository.findPageAfter(book1.getId() - 1, Limit.of(1));
+        assertThat(firstPage).extracting(BookView::id).containsExactly(book1.getId());
+
+        List<BookView> secondPage = bookRepository.findPageAfter(firstPage.get(0).id(), Limit.of(10));
+        assertThat(secondPage).extracting(BookView::id).containsExactly(book2.getId());
+    }
+
+    @Test
+    void givenBooksCreated_whenStreamAll_thenOrderedById(){
+        entityManager.persist(book1);
+        entityManager.persist(book2);
+
+        try(Stream<BookView> books = bookRepository.streamAll()){
+            List<Long> ids = books.map(BookView::id).toList();
+            assertThat(ids).isSorted();
+            assertThat(ids).contains(book1.getId(), book2.getId());
+        }
+    }
+
     @Test
     void givenBookCreated_whenDelete_thenSuccess(){
         entityManager.persist(book1);
@@ -0,0 +1,125 @@
+package com.project.library_management_system.book;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex(mock(BookRepository.class), mock(PlatformTransactionManager.class));
+        index.index(1L, "The Hobbit", "J.R.R. Tolkien", "978-0547928227");
+        index.index(2L, "The Lord of the Rings", "J.R.R. Tolkien", "978-0544003415");
+        index.index(3L, "Les Misérables", "Victor Hugo", "978-0451419439");
+        index.index(4L, "Hobbies for Beginners", "Ann Smith", "111");
+    }
+
+    @Test
+    void exactTitleWordRanksAbovePrefixMatch() {
+        BookSearchIndex.SearchPage page = index.search("hobbit", 0, 10);
+
+        assertThat(page.ids()).containsExactly(1L);
+    }
+
+    @Test
+    void prefixMatchesEveryTermStartingWithIt() {
+        assertThat(index.search("hobb", 0, 10).ids()).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void booksMatchingMoreQueryTermsComeFirst() {
+        assertThat(index.search("tolkien rings", 0, 10).ids()).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void searchIsCaseAndAccentInsensitive() {
+        assertThat(index.search("MISERABLES", 0, 10).ids()).containsExactly(3L);
+        assertThat(index.search("misérables", 0, 10).ids()).containsExactly(3L);
+    }
+
+    @Test
+    void tokenizeSplitsLikeTheLetterAndNumberRegex() {
+        Pattern separators = Pattern.compile("[^\\p{L}\\p{N}]+");
+        for(String text : List.of("J.R.R. Tolkien", "  978-0547928227 ", "Brontë's Wuthering-Heights", "ΑΘΗΝΑ, Ἀθῆναι",
+                "Louis Ⅻ & ½ price", "𝔇𝔲𝔫𝔢 𠀀book", "naïve_café", "tab\there")){
+            String folded = Pattern.compile("\\p{M}+").matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                    .toLowerCase(Locale.ROOT);
+            List<String> expected = Arrays.stream(separators.split(folded)).filter(token -> !token.isEmpty()).toList();
+
+            assertThat(BookSearchIndex.tokenize(text)).as(text).isEqualTo(expected);
+        }
+        assertThat(BookSearchIndex.tokenize("Les Misérables")).containsExactly("les", "miserables");
+        assertThat(BookSearchIndex.tokenize(" \t")).isEmpty();
+    }
+
+    @Test
+    void toleratesTyposInLongerTerms() {
+        assertThat(index.search("tolkein", 0, 10).ids()).containsExactly(1L, 2L);
+        assertThat(index.search("hugp", 0, 10).ids()).containsExactly(3L);
+    }
+
+    @Test
+    void isbnIsFoundWithAndWithoutDashes() {
+        assertThat(index.search("9780547928227", 0, 10).ids()).containsExactly(1L);
+        assertThat(index.search("0547928227", 0, 10).ids()).containsExactly(1L);
+    }
+
+    @Test
+    void reindexingReplacesTheOldTerms() {
+        index.onBookChanged(new BookChangedEvent(1L, "The Silmarillion", "J.R.R. Tolkien", null, true, false));
+
+        assertThat(index.search("hobbit", 0, 10).ids()).isEmpty();
+        assertThat(index.search("silmarillion", 0, 10).ids()).containsExactly(1L);
+    }
+
+    @Test
+    void deletedBooksDisappearFromResults() {
+        index.onBookChanged(BookChangedEvent.deleted(3L));
+
+        assertThat(index.search("hugo", 0, 10).ids()).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void importedBatchesAreIndexedTogether() {
+        index.onBooksImported(new BooksImportedEvent(List.of(
+                new BookChangedEvent(10L, "Dune", "Frank Herbert", null, true, false),
+                new BookChangedEvent(11L, "Dune Messiah", "Frank Herbert", null, true, false))));
+
+        assertThat(index.search("dune", 0, 10).ids()).containsExactly(10L, 11L);
+        assertThat(index.size()).isEqualTo(6);
+    }
+
+    @Test
+    void loadsTheCatalogBeforeTheContextIsReady() {
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.streamAll()).thenReturn(Stream.of(new BookView(9L, "Middlemarch", "George Eliot", null, true)));
+        BookSearchIndex loaded = new BookSearchIndex(bookRepository, mock(PlatformTransactionManager.class));
+
+        loaded.afterSingletonsInstantiated();
+
+        assertThat(loaded.search("eliot", 0, 10).ids()).containsExactly(9L);
+    }
+
+    @Test
+    void paginatesRankedHits() {
+        BookSearchIndex.SearchPage page = index.search("the", 1, 1);
+
+        assertThat(page.total()).isEqualTo(2);
+        assertThat(page.ids()).isEqualTo(List.of(2L));
+    }
+}
@@ -0,0 +1,67 @@
+package com.project.library_management_system.config;
+
+import com.project.library_management_system.LibraryManagementSystemApplication;
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the 'file' profile against a temporary directory: no server or network needed
+public class FileDatastoreProfileTest {
+
+    @TempDir
+    Path dataDir;
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(LibraryManagementSystemApplication.class)
+                .profiles("file")
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false")
+                .run("--library.data-dir=" + dataDir.toAbsolutePath());   //above the profile's own value
+    }
+
+    @Test
+    void booksSurviveARestart() {
+        Long id;
+        try (ConfigurableApplicationContext app = start()) {
+            id = app.getBean(BookRepository.class).save(new Book(null, "Dune", "Frank Herbert", "978-0441013593", true, null)).getId();
+        }
+        assertThat(dataDir.resolve("library.mv.db")).exists();
+
+        try (ConfigurableApplicationContext app = start()) {
+            BookRepository books = app.getBean(BookRepository.class);
+            assertThat(books.findById(id)).get().extracting(Book::getTitle).isEqualTo("Dune");
+            //the seed migration ran once, not again on the second start
+            assertThat(books.count()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void selfCheck_reportsTheTunedPoolAndBatching() throws Exception {
+        try (ConfigurableApplicationContext app = start()) {
+            Map<String, Object> report = app.getBean(DatastoreSelfCheck.class).report();
+
+            assertThat((String) report.get("url")).startsWith("jdbc:h2:file:");
+            assertThat(report).containsEntry("pool.name", "library")
+                    .containsEntry("pool.maximumSize", 10)
+                    .containsEntry("pool.minimumIdle", 10)
+                    .containsEntry("pool.leakDetectionMs", 30000L)
+                    .containsEntry("jdbc.batchSize", 50)
+                    .containsEntry("jdbc.orderInserts", true)
+                    .containsEntry("jdbc.orderUpdates", true)
+                    .containsEntry("query.inClauseParameterPadding", true)
+                    .containsEntry("h2.queryCacheSize", "64");
+            assertThat(Files.list(dataDir)).isNotEmpty();
+        }
+    }
+}
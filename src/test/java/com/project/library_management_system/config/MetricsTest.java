@@ -0,0 +1,75 @@
+package com.project.library_management_system.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// one real login and two authenticated reads, then everything the request touched is in the prometheus scrape
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability   //boot switches metrics export off in tests otherwise
+public class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheus_exportsTheHotPathMeters() throws Exception {
+        String bearer = "Bearer " + login();
+        mockMvc.perform(get("/api/books").header(HttpHeaders.AUTHORIZATION, bearer)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/books").header(HttpHeaders.AUTHORIZATION, bearer)).andExpect(status().isOk());
+
+        List<String> scrape = mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().lines().toList();
+
+        assertThat(scrape).anyMatch(line -> line.startsWith("http_server_requests_seconds_bucket{")
+                && line.contains("uri=\"/api/books\"") && line.contains("application=\"library-management-system\""));
+        assertThat(scrape).anyMatch(line -> line.startsWith("spring_data_repository_invocations_seconds_bucket{")
+                && line.contains("repository=\"BookRepository\""));
+        assertThat(scrape).anyMatch(line -> line.startsWith("repository_rows_count{")
+                && line.contains("repository=\"BookRepository\"") && line.contains("method=\"findAllViews\""));
+        assertThat(scrape).anyMatch(line -> line.startsWith("repository_rows_count{")
+                && line.contains("repository=\"UserRepository\""));
+        assertThat(scrape).anyMatch(line -> line.startsWith("hikaricp_connections_pending{"));
+        assertThat(scrape).anyMatch(line -> line.startsWith("hikaricp_connections_acquire_seconds_bucket{"));
+        assertThat(scrape).anyMatch(line -> line.startsWith("security_jwt_decode_seconds_count{")
+                && line.contains("result=\"miss\"") && !line.endsWith(" 0"));
+        assertThat(scrape).anyMatch(line -> line.startsWith("security_jwt_decode_seconds_count{")
+                && line.contains("result=\"hit\"") && !line.endsWith(" 0"));
+        assertThat(scrape).anyMatch(line -> line.startsWith("security_password_hash_seconds_count{")
+                && line.contains("operation=\"matches\"") && !line.endsWith(" 0"));
+        assertThat(scrape).anyMatch(line -> line.startsWith("executor_queued_tasks{")
+                && line.contains("name=\"password.hashing\""));
+    }
+
+    @Test
+    void prometheus_isAdminOnly() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    }
+
+    private String login() throws Exception {
+        MvcResult result = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"admin@example.com\",\"password\":\"adminPass123\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return new ObjectMapper().readTree(body).get("token").asText();
+    }
+}
@@ -0,0 +1,211 @@
+package com.project.library_management_system.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.loan.LoanRepository;
+import com.project.library_management_system.loan.LoanView;
+import com.project.library_management_system.user.Role;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// repeated lookups are answered without sql, and a change made through the api is never hidden by the cache
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@example.com", roles = "ADMIN")
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+    private final List<Long> bookIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookIds.forEach(id -> loanRepository.findLatestViewsByBookId(id, Limit.of(10))
+                .forEach(loan -> loanRepository.deleteById(loan.id())));
+        bookRepository.deleteAllById(bookIds);
+        userRepository.deleteAllById(userIds);
+    }
+
+    @Test
+    void bookById_isCachedAndFollowsAnUpdate() throws Exception {
+        Long id = book("Cached Title", "Cache Author A");
+
+        mockMvc.perform(get("/api/books/{id}", id));
+        assertThat(statements(get("/api/books/{id}", id))).isZero();
+
+        mockMvc.perform(put("/api/books/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Renamed\",\"author\":\"Cache Author A\",\"isbn\":\"1\",\"available\":true}"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/books/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Renamed")));
+    }
+
+    @Test
+    void bookById_followsTheAvailabilityOfACheckout() throws Exception {
+        Long bookId = book("Loaned Title", "Cache Author B");
+        Long userId = user("borrower@cache.test");
+        mockMvc.perform(get("/api/books/{id}", bookId)).andExpect(jsonPath("$.available", is(true)));
+
+        mockMvc.perform(post("/api/loans").param("userId", userId.toString()).param("bookId", bookId.toString()))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/books/{id}", bookId)).andExpect(jsonPath("$.available", is(false)));
+
+        LoanView loan = loanRepository.findLatestViewsByBookId(bookId, Limit.of(1)).get(0);
+        mockMvc.perform(delete("/api/loans/{id}", loan.id())).andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/books/{id}", bookId)).andExpect(jsonPath("$.available", is(true)));
+    }
+
+    @Test
+    void booksByAuthor_queryCacheIsDroppedByANewBook() throws Exception {
+        book("First", "Cache Author C");
+
+        assertThat(statements(get("/api/books/by-author").param("author", "Cache Author C"))).isEqualTo(1);
+        assertThat(statements(get("/api/books/by-author").param("author", "Cache Author C"))).isZero();
+
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Second\",\"author\":\"Cache Author C\",\"isbn\":\"2\",\"available\":true}"))
+                .andExpect(status().isCreated());
+        bookRepository.findAllByAuthor("Cache Author C").forEach(book -> bookIds.add(book.getId()));
+
+        mockMvc.perform(get("/api/books/by-author").param("author", "Cache Author C"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void userByEmail_isCachedAndFollowsAnEmailChange() throws Exception {
+        Long id = user("before@cache.test");
+
+        statements(get("/api/users/by-email").param("email", "before@cache.test"));
+        assertThat(statements(get("/api/users/by-email").param("email", "before@cache.test"))).isZero();
+        assertThat(statements(get("/api/users/{id}", id))).isZero();
+
+        mockMvc.perform(put("/api/users/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Cache User\",\"email\":\"after@cache.test\",\"role\":\"USER\",\"approved\":true}"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/users/by-email").param("email", "before@cache.test"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/users/by-email").param("email", "after@cache.test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.approved", is(true)));
+    }
+
+    @Test
+    void userById_isGoneAfterDelete() throws Exception {
+        Long id = user("deleted@cache.test");
+        mockMvc.perform(get("/api/users/{id}", id)).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/users/{id}", id)).andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/users/{id}", id)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/users/by-email").param("email", "deleted@cache.test")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void regions_areBoundedAsConfigured() {
+        JCacheRegionFactory regionFactory = (JCacheRegionFactory) sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getCache().getRegionFactory();
+        CacheManager cacheManager = regionFactory.getCacheManager();
+
+        assertThat(maximumSize(cacheManager, "books")).isEqualTo(10_000);
+        assertThat(maximumSize(cacheManager, "users-by-email")).isEqualTo(10_000);
+        assertThat(maximumSize(cacheManager, "books-by-author")).isEqualTo(1_000);
+        assertThat(cacheManager.getCache("default-update-timestamps-region")
+                .getConfiguration(CaffeineConfiguration.class).getMaximumSize()).isEmpty();
+    }
+
+    @Test
+    void actuatorEndpoint_reportsAndEvicts() throws Exception {
+        Long id = book("Reported", "Cache Author D");
+        mockMvc.perform(get("/api/books/{id}", id));
+        mockMvc.perform(get("/api/books/{id}", id));
+
+        mockMvc.perform(get("/actuator/hibernatecache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statisticsEnabled", is(true)))
+                .andExpect(jsonPath("$.entities.hits", greaterThan(0)))
+                .andExpect(jsonPath("$.regions.books.hits", greaterThan(0)))
+                .andExpect(jsonPath("$.regions['users-by-email']").exists());
+
+        mockMvc.perform(delete("/actuator/hibernatecache")).andExpect(status().isNoContent());
+        assertThat(statements(get("/api/books/{id}", id))).isEqualTo(1);
+    }
+
+    private long statements(RequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Long book(String title, String author) {
+        Long id = bookRepository.save(new Book(null, title, author, "1", true, null)).getId();
+        bookIds.add(id);
+        return id;
+    }
+
+    private Long user(String email) {
+        Long id = userRepository.save(new User(null, "Cache User", email, "secret", Role.USER, true, null)).getId();
+        userIds.add(id);
+        return id;
+    }
+
+    private static long maximumSize(CacheManager cacheManager, String region) {
+        return cacheManager.getCache(region).getConfiguration(CaffeineConfiguration.class).getMaximumSize().orElseThrow();
+    }
+}
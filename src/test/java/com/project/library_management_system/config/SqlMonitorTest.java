@@ -0,0 +1,96 @@
+package com.project.library_management_system.config;
+
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.exception.SqlBudgetExceededException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a lazy collection read per row, the storm the monitor is there for, served by a controller of the test's own.
+// slow-threshold 0 logs every statement, so the slow log can be checked without a slow query
+@SpringBootTest(properties = {
+        "sql.monitor.enforce-budgets=true",
+        "sql.monitor.slow-threshold=0ms"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@example.com", roles = "ADMIN")
+@Import(SqlMonitorTest.LazyLoansController.class)
+@ExtendWith(OutputCaptureExtension.class)
+public class SqlMonitorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void lazyLoadPerRow_isReportedAsNPlusOne(CapturedOutput output) throws Exception {
+        mockMvc.perform(get("/test/lazy-loans")).andExpect(status().isOk());
+
+        assertThat(output.getOut()).containsPattern(
+                "GET /test/lazy-loans ran the same statement \\d+ times with \\d+ different binds, likely N\\+1: select .*from loan");
+    }
+
+    @Test
+    void endpointOverItsBudget_failsWhenEnforced() {
+        assertThatThrownBy(() -> mockMvc.perform(get("/test/lazy-loans/budgeted")))
+                .hasRootCauseInstanceOf(SqlBudgetExceededException.class)
+                .rootCause().hasMessageContaining("GET /test/lazy-loans/budgeted needs more than its budget of 2");
+    }
+
+    @Test
+    void endpointWithinItsBudget_runsNormally() throws Exception {
+        mockMvc.perform(get("/api/books/by-title").param("title", "The Hobbit")).andExpect(status().isOk());
+    }
+
+    @Test
+    void slowStatement_isLoggedWithABindFingerprintInsteadOfTheValues(CapturedOutput output) throws Exception {
+        mockMvc.perform(get("/api/users/by-name").param("name", "John Doe")).andExpect(status().isOk());
+
+        String line = output.getOut().lines()
+                .filter(l -> l.contains("Slow statement") && l.contains("in GET /api/users/by-name"))
+                .findFirst().orElseThrow();
+        assertThat(line).containsPattern("\\[binds #[0-9a-f]{8}\\]").doesNotContain("John Doe");
+    }
+
+    @Test
+    void shape_countsInListsOfAnyLengthAsOne() {
+        assertThat(SqlMonitor.shape("select b.id\n  from book b where b.id in (?, ?,?) and b.available=?"))
+                .isEqualTo("select b.id from book b where b.id in (?) and b.available=?");
+    }
+
+
+    @RestController
+    static class LazyLoansController {
+
+        private final BookRepository bookRepository;
+
+        LazyLoansController(BookRepository bookRepository){
+            this.bookRepository=bookRepository;
+        }
+
+        // one select for the books, then one per book for its loans
+        @GetMapping("/test/lazy-loans")
+        public int loansOfEveryBook(){
+            return bookRepository.findAll().stream().mapToInt(book -> book.getLoans().size()).sum();
+        }
+
+        @GetMapping("/test/lazy-loans/budgeted")
+        @SqlBudget(2)
+        public int loansOfEveryBookWithinBudget(){
+            return loansOfEveryBook();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.project.library_management_system.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VirtualThreadPinningMonitorTest {
+
+    private final Object monitor = new Object();
+
+    @Test
+    void aVirtualThreadSleepingInsideSynchronized_isReportedAsPinned() throws Exception {
+        VirtualThreadPinningMonitor pinning = new VirtualThreadPinningMonitor(Duration.ofMillis(10));
+        try{
+            Thread.ofVirtual().start(() -> {
+                synchronized(monitor){   //parks while holding a monitor: the carrier cannot be released
+                    try{
+                        Thread.sleep(100);
+                    }catch(InterruptedException e){
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+
+            //jfr streams its events about once a second
+            long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+            while(pinning.pinnedCount() == 0 && System.nanoTime() < deadline){
+                Thread.sleep(100);
+            }
+            assertThat(pinning.pinnedCount()).isPositive();
+        }finally{
+            pinning.destroy();
+        }
+    }
+}
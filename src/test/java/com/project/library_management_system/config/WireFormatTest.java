@@ -0,0 +1,131 @@
+package com.project.library_management_system.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.book.BookView;
+import com.project.library_management_system.loan.LoanView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// compression and the binary formats only exist in the real server, so this goes over http to a random port
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class WireFormatTest {
+
+    private static final int BOOKS = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper json = new ObjectMapper();
+    private final List<Long> bookIds = new ArrayList<>();
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new Book(null, "Wire Title " + i, "Wire Author", "wire-" + i, true, null));
+        }
+        bookRepository.saveAll(books).forEach(book -> bookIds.add(book.getId()));
+        token = login();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAllById(bookIds);
+    }
+
+    @Test
+    void largeList_isGzippedWhenTheClientAcceptsIt() throws Exception {
+        HttpResponse<byte[]> plain = send("/api/books", "application/json", null);
+        HttpResponse<byte[]> gzipped = send("/api/books", "application/json", "gzip");
+
+        assertThat(plain.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(gzipped.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(gzipped.body().length).isLessThan(plain.body().length / 4);
+        assertThat(gunzip(gzipped.body())).isEqualTo(plain.body());
+    }
+
+    @Test
+    void smallResponse_staysUncompressed() throws Exception {
+        HttpResponse<byte[]> response = send("/api/books/" + bookIds.get(0), "application/json", "gzip");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+    }
+
+    @Test
+    void bookList_asCbor_isTheSameListInFewerBytes() throws Exception {
+        HttpResponse<byte[]> plain = send("/api/books", "application/json", null);
+        HttpResponse<byte[]> cbor = send("/api/books", "application/cbor", null);
+
+        assertThat(cbor.headers().firstValue("Content-Type")).hasValue("application/cbor");
+        assertThat(cbor.headers().allValues("Vary")).anyMatch(vary -> vary.toLowerCase().matches("(.*,\\s*)?accept(\\s*,.*)?"));
+        assertThat(new CBORMapper().readValue(cbor.body(), new TypeReference<List<BookView>>() {}))
+                .isEqualTo(json.readValue(plain.body(), new TypeReference<List<BookView>>() {}));
+        assertThat(cbor.body().length).isLessThan(plain.body().length);
+    }
+
+    @Test
+    void loanList_asSmile_isTheSameList() throws Exception {
+        HttpResponse<byte[]> plain = send("/api/loans", "application/json", null);
+        HttpResponse<byte[]> smile = send("/api/loans", "application/x-jackson-smile", null);
+
+        assertThat(smile.headers().firstValue("Content-Type")).hasValue("application/x-jackson-smile");
+        List<LoanView> loans = SmileMapper.builder().findAndAddModules().build()
+                .readValue(smile.body(), new TypeReference<>() {});
+        assertThat(loans).isEqualTo(json.findAndRegisterModules().readValue(plain.body(), new TypeReference<List<LoanView>>() {}));
+    }
+
+    private HttpResponse<byte[]> send(String path, String accept, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", accept);
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(response.statusCode()).as(path + " as " + accept).isEqualTo(200);
+        return response;
+    }
+
+    private String login() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@example.com\",\"password\":\"adminPass123\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return json.readTree(response.body()).get("token").asText();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
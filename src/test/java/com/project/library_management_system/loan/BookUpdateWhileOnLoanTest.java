@@ -0,0 +1,106 @@
+package com.project.library_management_system.loan;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.exception.ConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// PUT /api/books/{id} edits the catalog data of a book, whether it is on the shelf is the loans' to decide:
+// an "available": true in the body must not open the way to a second active loan of the same copy,
+// nor put a book back on the shelf past the patrons waiting for it
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@example.com", roles = "ADMIN")
+public class BookUpdateWhileOnLoanTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        book = bookRepository.save(new Book(null, "On Loan", "Author", "put-on-loan", true, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.findLatestViewsByBookId(book.getId(), Limit.unlimited())
+                .forEach(loan -> loanService.delete(loan.id()));
+        bookRepository.deleteById(book.getId());
+    }
+
+    @Test
+    void put_withAvailableTrue_keepsABookOnLoanUnavailable() throws Exception {
+        loanService.checkout(1002L, book.getId());
+
+        mockMvc.perform(put("/api/books/{id}", book.getId())
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"On Loan, 2nd edition\", \"author\":\"Author\", \"isbn\":\"put-on-loan\", \"available\":true}"))
+                .andExpect(status().isNoContent());
+
+        Book updated = bookRepository.findById(book.getId()).orElseThrow();
+        assertThat(updated.getTitle()).isEqualTo("On Loan, 2nd edition");
+        assertThat(updated.isAvailable()).isFalse();
+        assertThatThrownBy(() -> loanService.checkout(1003L, book.getId())).isInstanceOf(ConflictException.class);
+        assertThat(loanRepository.findLatestViewsByBookId(book.getId(), Limit.unlimited()))
+                .filteredOn(loan -> !loan.returned()).hasSize(1);
+    }
+
+    @Test
+    void put_withAvailableTrue_leavesTheQueueHeadNextInLine() throws Exception {
+        Long loanId = loanService.checkout(1002L, book.getId()).getId();
+        reservationService.join(1003L, book.getId());
+
+        putAvailable();
+        assertThatThrownBy(() -> loanService.checkout(1004L, book.getId())).isInstanceOf(ConflictException.class);
+
+        LoanView loan = loanRepository.findViewById(loanId).orElseThrow();
+        loanService.update(loanId, new Loan(null, null, null, loan.loanDate(), LocalDate.now(), true));
+
+        assertThat(loanRepository.findLatestViewsByBookId(book.getId(), Limit.of(1))).singleElement()
+                .satisfies(next -> {
+                    assertThat(next.returned()).isFalse();
+                    assertThat(next.userId()).isEqualTo(1003L);
+                });
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().isAvailable()).isFalse();
+    }
+
+    private void putAvailable() throws Exception {
+        mockMvc.perform(put("/api/books/{id}", book.getId())
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"On Loan\", \"author\":\"Author\", \"isbn\":\"put-on-loan\", \"available\":true}"))
+                .andExpect(status().isNoContent());
+    }
+}
@@ -0,0 +1,136 @@
+package com.project.library_management_system.loan;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.exception.ConflictException;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// N threads race to check out the same M books, every book must end up with exactly one active loan.
+// the tagged variant runs the same race at load-test size and reports the checkout throughput:
+//   mvn test -Ploadtest -Dtest=LoanCheckoutConcurrencyTest   (knobs: -Dloadtest.checkout-threads=32 -Dloadtest.checkout-books=500)
+@SpringBootTest
+public class LoanCheckoutConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanCheckoutConcurrencyTest.class);
+
+    private static final int THREADS = 16;
+    private static final int BOOKS = 20;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Long> bookIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll(loanRepository.findAll().stream()
+                .filter(loan -> bookIds.contains(loan.getBookId()))
+                .toList());
+        bookRepository.deleteAllById(bookIds);
+    }
+
+    @Test
+    void racingCheckouts_neverLoanABookTwice() throws Exception {
+        race(THREADS, BOOKS);
+    }
+
+    @Test
+    @Tag("loadtest")
+    void checkoutThroughput_underContention(TestReporter reporter) throws Exception {
+        int threads = Integer.getInteger("loadtest.checkout-threads", 32);
+        int books = Integer.getInteger("loadtest.checkout-books", 500);
+
+        long millis = Math.max(race(threads, books), 1);
+
+        long attempts = (long) threads * books;
+        log.info("{} checkout attempts by {} threads in {} ms: {} attempts/s, {} loans/s",
+                attempts, threads, millis, attempts * 1000 / millis, books * 1000L / millis);
+        reporter.publishEntry(Map.of(
+                "checkout.attempts", Long.toString(attempts),
+                "checkout.threads", Integer.toString(threads),
+                "checkout.millis", Long.toString(millis),
+                "checkout.attempts-per-second", Long.toString(attempts * 1000 / millis)));
+    }
+
+
+    //every thread tries every book in its own order, returns the milliseconds the race took
+    private long race(int threads, int books) throws Exception {
+        for(int i = 0; i < books; i++){
+            bookIds.add(bookRepository.save(new Book(null, "Popular " + i, "Author", "race-" + i, true, null)).getId());
+        }
+        User patron = userRepository.findByEmail("johndoe@example.com").orElseThrow();
+
+        AtomicInteger checkedOut = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for(int t = 0; t < threads; t++){
+            workers.add(pool.submit(() -> {
+                List<Long> order = new ArrayList<>(bookIds);
+                Collections.shuffle(order, ThreadLocalRandom.current());
+                start.await();
+                for(Long bookId : order){
+                    try{
+                        loanService.checkout(patron.getId(), bookId);
+                        checkedOut.incrementAndGet();
+                    }catch(ConflictException e){
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for(Future<?> worker : workers){
+            worker.get(10, TimeUnit.MINUTES);   //rethrows anything other than a conflict
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        pool.shutdown();
+
+        assertThat(checkedOut.get()).isEqualTo(books);
+        assertThat(conflicts.get()).isEqualTo(threads * books - books);
+
+        Map<Long, Long> activeLoansPerBook = loanRepository.findViewsByReturned(false).stream()
+                .filter(loan -> bookIds.contains(loan.bookId()))
+                .collect(Collectors.groupingBy(LoanView::bookId, Collectors.counting()));
+        assertThat(activeLoansPerBook).hasSize(books).allSatisfy((bookId, count) -> assertThat(count).isEqualTo(1L));
+        assertThat(bookRepository.findAllById(bookIds)).noneMatch(Book::isAvailable);
+        return millis;
+    }
+}
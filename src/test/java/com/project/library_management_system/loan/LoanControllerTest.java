@@ -49,6 +49,9 @@ public class LoanControllerTest {
     @MockitoBean
     UserRepository userRepository;
 
+    @MockitoBean
+    LoanService loanService;
+
     @MockitoBean
     CustomUserDetailsService customUserDetailsService;
 
@@ -56,6 +59,8 @@ public class LoanControllerTest {
     private User mockUser;
     private Book mockBook;
     private List<Loan> mockLoanList;
+    private LoanView mockLoanView;
+    private List<LoanView> mockLoanViewList;
 
     @BeforeEach
     void setUp() {
@@ -73,17 +78,22 @@ public class LoanControllerTest {
         mockLoan.setBook(mockBook);
         mockLoan.setUser(mockUser);
         mockLoan.setLoanDate(LocalDate.now());
+        mockLoan.setDueDate(LocalDate.now().plusDays(14));
         mockLoan.setReturnDate(LocalDate.now().plusDays(14));
         mockLoan.setReturned(false);
 
         mockLoanList = List.of(mockLoan);
 
+        // what the read queries return: the same loan as a flat row
+        mockLoanView = new LoanView(1L, mockLoan.getLoanDate(), mockLoan.getDueDate(), mockLoan.getReturnDate(), false, 200L, 100L, "alice@example.com");
+        mockLoanViewList = List.of(mockLoanView);
+
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void findAllLoans_shouldReturnList_whenAdmin() throws Exception{
-        when(loanRepository.findAll()).thenReturn(mockLoanList);
+        when(loanRepository.findAllViews()).thenReturn(mockLoanViewList);
 
         mockMvc.perform(get("/api/loans"))
                 .andExpect(status().isOk())
@@ -101,7 +111,7 @@ public class LoanControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN") // Admin can see ANY loan
     void findById_shouldReturnLoan_WhenAdmin() throws Exception {
-        when(loanRepository.findById(1L)).thenReturn(Optional.of(mockLoan));
+        when(loanRepository.findViewById(1L)).thenReturn(Optional.of(mockLoanView));
 
         mockMvc.perform(get("/api/loans/{id}", 1L))
                 .andExpect(status().isOk());
@@ -110,7 +120,7 @@ public class LoanControllerTest {
     @Test
     @WithMockUser(username = "alice@example.com", roles = "USER")
     void findById_shouldReturnLoan_WhenUserIsOwner() throws Exception {
-        when(loanRepository.findById(1L)).thenReturn(Optional.of(mockLoan));
+        when(loanRepository.findViewById(1L)).thenReturn(Optional.of(mockLoanView));
 
         mockMvc.perform(get("/api/loans/{id}", 1L))
                 .andExpect(status().isOk());
@@ -119,7 +129,7 @@ public class LoanControllerTest {
     @Test
     @WithMockUser(username = "bob@example.com", roles = "USER")
     void findById_shouldReturn403_WhenUserIsNotOwner() throws Exception {
-        when(loanRepository.findById(1L)).thenReturn(Optional.of(mockLoan));
+        when(loanRepository.findViewById(1L)).thenReturn(Optional.of(mockLoanView));
 
         mockMvc.perform(get("/api/loans/{id}", 1L))
                 .andExpect(status().isForbidden()); // Security check blocks response
@@ -128,24 +138,18 @@ public class LoanControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void createLoan_shouldReturnCreated() throws Exception {
-        // Mock dependencies finding the user and book
-        when(userRepository.findById(100L)).thenReturn(Optional.of(mockUser));
-        when(bookRepository.findById(200L)).thenReturn(Optional.of(mockBook));
-
         mockMvc.perform(post("/api/loans")
                         .with(csrf())
                         .param("userId", "100")
                         .param("bookId", "200"))
                 .andExpect(status().isCreated());
 
-        verify(loanRepository, times(1)).save(any(Loan.class));
+        verify(loanService, times(1)).checkout(100L, 200L);
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void update_shouldReturnNoContent() throws Exception {
-        when(loanRepository.findById(1L)).thenReturn(Optional.of(mockLoan));
-
         Loan updatedInfo = new Loan(mockLoan);
         updatedInfo.setReturned(true); // Changing status
         updatedInfo.setReturnDate(LocalDate.now());
@@ -156,7 +160,7 @@ public class LoanControllerTest {
                         .content(objectMapper.writeValueAsString(updatedInfo)))
                 .andExpect(status().isNoContent());
 
-        verify(loanRepository, times(1)).save(any(Loan.class));
+        verify(loanService, times(1)).update(eq(1L), any(Loan.class));
     }
 
     @Test
@@ -166,20 +170,79 @@ public class LoanControllerTest {
                         .with(csrf()))
                 .andExpect(status().isNoContent());
 
-        verify(loanRepository, times(1)).deleteById(1L);
+        verify(loanService, times(1)).delete(1L);
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void findByUserId_shouldReturnLoans() throws Exception {
-        // You need to set the loans list on the mockUser for this to work
-        mockUser.setLoans(mockLoanList);
-
-        when(userRepository.findById(100L)).thenReturn(Optional.of(mockUser));
+        when(loanRepository.findViewsByUserId(100L)).thenReturn(mockLoanViewList);
 
         mockMvc.perform(get("/api/loans/by-userId")
                         .param("id", "100"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)));
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].bookId").value(200));
+
+        // the loans come from one projection query, the user itself is never loaded
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findByUserId_shouldReturn404_WhenUserMissing() throws Exception {
+        when(loanRepository.findViewsByUserId(99L)).thenReturn(List.of());
+        when(userRepository.existsById(99L)).thenReturn(false);
+
+        mockMvc.perform(get("/api/loans/by-userId")
+                        .param("id", "99"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findByUserEmail_shouldReturnLoans() throws Exception {
+        when(loanRepository.findViewsByUserEmail("alice@example.com")).thenReturn(mockLoanViewList);
+
+        mockMvc.perform(get("/api/loans/by-userEmail")
+                        .param("email", "alice@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userId").value(100));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findById_shouldNotSerializeTheBorrowersEmail() throws Exception {
+        when(loanRepository.findViewById(1L)).thenReturn(Optional.of(mockLoanView));
+
+        mockMvc.perform(get("/api/loans/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookId").value(200))
+                .andExpect(jsonPath("$.userId").value(100))
+                .andExpect(jsonPath("$.userEmail").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findByBookId_shouldReturnTheLatestLoanOfTheBook() throws Exception {
+        when(bookRepository.existsById(200L)).thenReturn(true);
+        when(loanRepository.findLatestViewsByBookId(eq(200L), any())).thenReturn(mockLoanViewList);
+
+        mockMvc.perform(get("/api/loans/by-bookId")
+                        .param("id", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findOverdue_shouldReturnTheLoansPastTheirDueDate() throws Exception {
+        when(loanRepository.findOverdueViews(LocalDate.now())).thenReturn(mockLoanViewList);
+
+        mockMvc.perform(get("/api/loans/overdue"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].dueDate").value(mockLoan.getDueDate().toString()));
     }
 }
@@ -6,8 +6,11 @@ import com.project.library_management_system.user.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -16,7 +19,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class LoanRepositoryTest {
 
     @Autowired
@@ -27,12 +30,13 @@ public class LoanRepositoryTest {
 
     private Loan activeLoan;
     private Loan returnedLoan;
+    private User user;
 
     @BeforeEach
     void setUp() {
         // 1. Create and Persist a USER first
         // We use 'null' for ID to let the DB auto-generate it
-        User user = new User(null, "Alice", "alice@test.com","password123", Role.USER, true, new ArrayList<>());
+        user = new User(null, "Alice", "alice@test.com","password123", Role.USER, true, new ArrayList<>());
         entityManager.persist(user);
 
         // 2. Create and Persist BOOKS first
@@ -113,21 +117,84 @@ public class LoanRepositoryTest {
     // --- Custom Query Test ---
 
     @Test
-    void givenLoans_whenFindAllByReturned_thenReturnsCorrectList() {
+    void givenLoans_whenFindViewsByReturned_thenReturnsThemInIdOrder() {
         // Arrange
         entityManager.persist(activeLoan);   // returned = false
         entityManager.persist(returnedLoan); // returned = true
 
         // Act 1: Find Active Loans (returned = false)
-        List<Loan> activeLoans = loanRepository.findAllByReturned(false);
+        List<LoanView> activeLoans = loanRepository.findViewsByReturned(false);
 
         // Assert 1
-        assertThat(activeLoans.get(2).getBook().getTitle()).isEqualTo("Spring Boot Action");
+        assertThat(activeLoans).extracting(LoanView::id).isSorted().contains(activeLoan.getId())
+                .doesNotContain(returnedLoan.getId());
+        assertThat(activeLoans).noneMatch(LoanView::returned);
 
         // Act 2: Find Returned Loans (returned = true)
-        List<Loan> historyLoans = loanRepository.findAllByReturned(true);
+        List<LoanView> historyLoans = loanRepository.findViewsByReturned(true);
 
         // Assert 2
-        assertThat(historyLoans.get(1).getBook().getTitle()).isEqualTo("Java Optimized");
+        assertThat(historyLoans).extracting(LoanView::id).isSorted().contains(returnedLoan.getId())
+                .doesNotContain(activeLoan.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenABooksHistory_whenFindLatestViewsByBookId_thenTheActiveLoanComesFirst() {
+        Book book = entityManager.persist(new Book(null, "Often Lent", "Author", "isbn-often", false, null));
+        Loan older = entityManager.persist(new Loan(null, book, user, LocalDate.now().minusDays(30), LocalDate.now().minusDays(20), true));
+        Loan recent = entityManager.persist(new Loan(null, book, user, LocalDate.now().minusDays(10), LocalDate.now().minusDays(5), true));
+        Loan active = entityManager.persist(new Loan(null, book, user, LocalDate.now().minusDays(40), null, false));
+
+        assertThat(loanRepository.findLatestViewsByBookId(book.getId(), Limit.of(2))).extracting(LoanView::id)
+                .containsExactly(active.getId(), recent.getId());
+        assertThat(loanRepository.findLatestViewsByBookId(book.getId(), Limit.unlimited())).extracting(LoanView::id)
+                .containsExactly(active.getId(), recent.getId(), older.getId());
+    }
+
+    // --- Fetch path tests (N+1) ---
+
+    @Test
+    void givenManyLoans_whenFindViewsByUserId_thenSingleStatement() {
+        // Arrange: one patron with a long loan history
+        for (int i = 0; i < 25; i++) {
+            Book book = entityManager.persist(new Book(null, "Book " + i, "Author " + i, "isbn-" + i, false, null));
+            entityManager.persist(new Loan(null, book, user, LocalDate.now().minusDays(i), null, false));
+        }
+        entityManager.flush();
+        entityManager.clear(); // nothing may come from the persistence context
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act: everything the JSON view shows comes with the row
+        List<LoanView> loans = loanRepository.findViewsByUserId(user.getId());
+
+        // Assert
+        assertThat(loans).hasSize(25).allSatisfy(loan -> {
+            assertThat(loan.bookId()).isNotNull();
+            assertThat(loan.userId()).isEqualTo(user.getId());
+            assertThat(loan.userEmail()).isEqualTo("alice@test.com");
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenManyLoans_whenFindViewsByUserEmail_thenSingleStatement() {
+        for (int i = 0; i < 10; i++) {
+            Book book = entityManager.persist(new Book(null, "Book " + i, "Author " + i, "isbn-" + i, false, null));
+            entityManager.persist(new Loan(null, book, user, LocalDate.now().minusDays(i), null, false));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<LoanView> loans = loanRepository.findViewsByUserEmail("alice@test.com");
+
+        assertThat(loans).hasSize(10).extracting(LoanView::userId).containsOnly(user.getId());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
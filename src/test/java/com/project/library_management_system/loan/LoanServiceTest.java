@@ -0,0 +1,178 @@
+package com.project.library_management_system.loan;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookChangedEvent;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.exception.ConflictException;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class LoanServiceTest {
+
+    private BookRepository bookRepository;
+    private LoanRepository loanRepository;
+    private ReservationService reservationService;
+    private ApplicationEventPublisher eventPublisher;
+    private LoanService loanService;
+
+    private User user;
+    private Book hobbit;
+    private Book emma;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        loanRepository = mock(LoanRepository.class);
+        reservationService = mock(ReservationService.class);   //nobody waits unless a test says so
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        loanService = new LoanService(bookRepository, userRepository, loanRepository, reservationService, eventPublisher,
+                mock(PlatformTransactionManager.class), Duration.ofDays(14));
+
+        user = new User();
+        user.setId(100L);
+        hobbit = new Book(1L, "The Hobbit", "J.R.R. Tolkien", null, true, null);
+        emma = new Book(2L, "Emma", "Jane Austen", null, true, null);
+
+        when(userRepository.findById(100L)).thenReturn(Optional.of(user));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(hobbit));
+        when(bookRepository.findById(2L)).thenReturn(Optional.of(emma));
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void checkout_reservesTheBookBeforeSavingTheLoan() {
+        when(bookRepository.reserve(1L)).thenAnswer(invocation -> {
+            hobbit.setAvailable(false);   //what the row looks like after the conditional update
+            return 1;
+        });
+
+        Loan loan = loanService.checkout(100L, 1L);
+
+        assertThat(loan.isReturned()).isFalse();
+        assertThat(loan.getBook()).isSameAs(hobbit);
+        assertThat(loan.getDueDate()).isEqualTo(loan.getLoanDate().plusDays(14));
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved(hobbit));
+    }
+
+    @Test
+    void checkout_ofABookOnLoanIsAConflict() {
+        when(bookRepository.reserve(1L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> loanService.checkout(100L, 1L)).isInstanceOf(ConflictException.class);
+        verify(loanRepository, never()).save(any(Loan.class));
+    }
+
+    @Test
+    void checkout_retriesALockTimeoutAFewTimes() {
+        when(bookRepository.reserve(1L))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(1);
+
+        assertThat(loanService.checkout(100L, 1L).getBook()).isSameAs(hobbit);
+        verify(bookRepository, times(2)).reserve(1L);
+    }
+
+    @Test
+    void checkout_givesUpAfterTheLastAttempt() {
+        when(bookRepository.reserve(1L)).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertThatThrownBy(() -> loanService.checkout(100L, 1L)).isInstanceOf(CannotAcquireLockException.class);
+        verify(bookRepository, times(3)).reserve(1L);
+    }
+
+    @Test
+    void update_returningTheLoanReleasesTheBook() {
+        hobbit.setAvailable(false);
+        when(loanRepository.findById(5L)).thenReturn(Optional.of(new Loan(5L, hobbit, user, LocalDate.now(), null, false)));
+
+        loanService.update(5L, new Loan(null, null, null, LocalDate.now(), LocalDate.now(), true));
+
+        assertThat(hobbit.isAvailable()).isTrue();
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved(hobbit));
+    }
+
+    @Test
+    void update_movingAnActiveLoanSwapsTheBooks() {
+        hobbit.setAvailable(false);
+        Loan existing = new Loan(5L, hobbit, user, LocalDate.now(), null, false);
+        when(loanRepository.findById(5L)).thenReturn(Optional.of(existing));
+        when(bookRepository.reserve(2L)).thenReturn(1);
+
+        loanService.update(5L, new Loan(null, new Book(2L, null, null, null, true, null), null, LocalDate.now(), null, false));
+
+        assertThat(existing.getBook()).isSameAs(emma);
+        assertThat(hobbit.isAvailable()).isTrue();
+        assertThat(emma.isAvailable()).isFalse();
+    }
+
+    @Test
+    void update_keepingAnActiveLoanPublishesNothing() {
+        hobbit.setAvailable(false);
+        when(loanRepository.findById(5L)).thenReturn(Optional.of(new Loan(5L, hobbit, user, LocalDate.now(), null, false)));
+
+        loanService.update(5L, new Loan(null, null, null, LocalDate.now(), LocalDate.now().plusDays(7), false));
+
+        assertThat(hobbit.isAvailable()).isFalse();
+        verify(bookRepository, never()).reserve(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void update_reopeningAReturnedLoanReservesTheBookAgain() {
+        when(loanRepository.findById(5L)).thenReturn(Optional.of(new Loan(5L, hobbit, user, LocalDate.now(), null, true)));
+        when(bookRepository.reserve(1L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> loanService.update(5L, new Loan(null, null, null, LocalDate.now(), null, false)))
+                .isInstanceOf(ConflictException.class);
+    }
+
+    @Test
+    void delete_ofAnActiveLoanReleasesTheBook() {
+        hobbit.setAvailable(false);
+        Loan existing = new Loan(5L, hobbit, user, LocalDate.now(), null, false);
+        when(loanRepository.findById(5L)).thenReturn(Optional.of(existing));
+
+        loanService.delete(5L);
+
+        assertThat(hobbit.isAvailable()).isTrue();
+        verify(loanRepository).delete(existing);
+    }
+
+    @Test
+    void update_returningABookSomeoneWaitsForLendsItToThem() {
+        hobbit.setAvailable(false);
+        User waiting = new User();
+        waiting.setId(101L);
+        when(loanRepository.findById(5L)).thenReturn(Optional.of(new Loan(5L, hobbit, user, LocalDate.now(), null, false)));
+        when(reservationService.next(1L)).thenReturn(Optional.of(new Reservation(hobbit, waiting, 1)));
+
+        loanService.update(5L, new Loan(null, null, null, LocalDate.now(), LocalDate.now(), true));
+
+        ArgumentCaptor<Loan> saved = ArgumentCaptor.forClass(Loan.class);
+        verify(loanRepository, times(2)).save(saved.capture());
+        Loan handedOff = saved.getAllValues().get(1);
+        assertThat(handedOff.getUser()).isSameAs(waiting);
+        assertThat(handedOff.getBook()).isSameAs(hobbit);
+        assertThat(handedOff.isReturned()).isFalse();
+        assertThat(hobbit.isAvailable()).as("the book never goes back on the shelf").isFalse();
+        verify(eventPublisher, never()).publishEvent(any(BookChangedEvent.class));
+    }
+}
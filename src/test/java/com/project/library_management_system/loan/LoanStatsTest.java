@@ -0,0 +1,168 @@
+package com.project.library_management_system.loan;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// loans are checked out today and then moved to a monday three years ahead, days no other test uses,
+// so the buckets asserted here hold this test's loans only
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@example.com", roles = "ADMIN")
+public class LoanStatsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRollup loanRollup;
+
+    @Autowired
+    private LoanStats loanStats;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final LocalDate base = LocalDate.now().plusYears(3).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    private final List<Long> loanIds = new ArrayList<>();
+    private Book first;
+    private Book second;
+
+    @BeforeEach
+    void setUp() {
+        first = bookRepository.save(new Book(null, "Rollup First", "Stats Author", null, true, null));
+        second = bookRepository.save(new Book(null, "Rollup Second", "Stats Author", null, true, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanIds.forEach(loanService::delete);
+        bookRepository.deleteAllById(List.of(first.getId(), second.getId()));
+    }
+
+    @Test
+    void stats_followCheckoutsMovesAndDeletes() throws Exception {
+        loan(1002L, first, base);
+        Long moved = loan(1002L, second, base);
+        Long deleted = loan(1003L, first, base.plusDays(1));
+
+        mockMvc.perform(get("/api/loans/stats/daily").param("from", base.toString()).param("to", base.plusDays(2).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[*].loans", contains(2, 1, 0)))
+                .andExpect(jsonPath("$[*].borrowers", contains(1, 1, 0)));
+        mockMvc.perform(get("/api/loans/stats/summary").param("from", base.toString()).param("to", base.plusDays(2).toString()))
+                .andExpect(jsonPath("$.loans").value(3))
+                .andExpect(jsonPath("$.borrowers").value(2));
+        mockMvc.perform(get("/api/loans/stats/top-books").param("from", base.toString()).param("to", base.plusDays(2).toString()))
+                .andExpect(jsonPath("$[*].bookId", contains(first.getId().intValue(), second.getId().intValue())))
+                .andExpect(jsonPath("$[*].loans", contains(2, 1)))
+                .andExpect(jsonPath("$[0].title").value("Rollup First"));
+
+        loanService.update(moved, returned(base.plusDays(1)));
+        loanService.delete(deleted);
+        loanIds.remove(deleted);
+
+        assertThat(loanStats.daily(base, base.plusDays(1))).containsExactly(
+                new LoanStats.Period(base, 1, 1), new LoanStats.Period(base.plusDays(1), 1, 1));
+    }
+
+    @Test
+    void weekly_countsWholeWeeksFromMonday() throws Exception {
+        loan(1002L, first, base);
+        loan(1002L, second, base.plusDays(6));
+        loan(1003L, first, base.plusDays(7));
+
+        //from a wednesday: the week is still counted from its monday
+        mockMvc.perform(get("/api/loans/stats/weekly").param("from", base.plusDays(2).toString()).param("to", base.plusDays(8).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].start", contains(base.toString(), base.plusDays(7).toString())))
+                .andExpect(jsonPath("$[*].loans", contains(2, 1)))
+                .andExpect(jsonPath("$[*].borrowers", contains(1, 1)));
+    }
+
+    @Test
+    void rebuild_countsLoansWrittenPastTheRollup() {
+        loan(1002L, first, base);
+        Loan direct = new Loan(null, second, userRepository.findById(1003L).orElseThrow(), base, base, true);
+        loanIds.add(loanRepository.save(direct).getId());   //no event, the incremental rollup misses it
+
+        assertThat(loanStats.summary(base, base)).isEqualTo(new LoanStats.Summary(base, base, 1, 1));
+
+        loanRollup.rebuild();
+
+        assertThat(loanStats.summary(base, base)).isEqualTo(new LoanStats.Summary(base, base, 2, 2));
+        assertThat(loanStats.topBooks(base, base, 10)).extracting(LoanStats.TopBook::bookId)
+                .containsExactlyInAnyOrder(first.getId(), second.getId());
+    }
+
+    @Test
+    void deletingABook_takesItsLoansOutOfTheStats() throws Exception {
+        loan(1002L, first, base);
+        Long gone = loan(1003L, second, base);
+        loanIds.remove(gone);
+
+        mockMvc.perform(delete("/api/books/{id}", second.getId()).with(csrf()))
+                .andExpect(status().isNoContent());
+
+        assertThat(loanRepository.existsById(gone)).isFalse();
+        assertThat(loanStats.summary(base, base)).isEqualTo(new LoanStats.Summary(base, base, 1, 1));
+        assertThat(loanStats.topBooks(base, base, 10)).extracting(LoanStats.TopBook::bookId).containsExactly(first.getId());
+
+        //the incremental rollup and a recount agree
+        loanRollup.rebuild();
+        assertThat(loanStats.summary(base, base)).isEqualTo(new LoanStats.Summary(base, base, 1, 1));
+    }
+
+    @Test
+    void range_fromAfterToIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/loans/stats/summary").param("from", base.toString()).param("to", base.minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/loans/stats/daily").param("from", base.minusYears(10).toString()).param("to", base.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    //checked out today, then moved to the given day and returned so the book is free again
+    private Long loan(Long userId, Book book, LocalDate day) {
+        Long id = loanService.checkout(userId, book.getId()).getId();
+        loanIds.add(id);
+        loanService.update(id, returned(day));
+        return id;
+    }
+
+    private static Loan returned(LocalDate day) {
+        return new Loan(null, null, null, day, day, true);
+    }
+}
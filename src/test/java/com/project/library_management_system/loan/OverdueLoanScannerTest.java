@@ -0,0 +1,106 @@
+package com.project.library_management_system.loan;
+
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the loans here fall due a year from now, past anything a scheduled run (today) can see, so the scans below only
+// race with other contexts on the seeded loans. chunks of 2 make three overdue loans take more than one chunk
+@SpringBootTest(properties = "loans.overdue.chunk-size=2")
+@RecordApplicationEvents
+public class OverdueLoanScannerTest {
+
+    @Autowired
+    private OverdueLoanScanner scanner;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private final LocalDate base = LocalDate.now().plusYears(1);
+    private final List<Long> loanIds = new ArrayList<>();
+    private Optional<JobCheckpoint> checkpointBefore;
+
+    @BeforeEach
+    void setUp() {
+        checkpointBefore = checkpointRepository.findById(OverdueLoanScanner.JOB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAllById(loanIds);
+        checkpointBefore.ifPresentOrElse(checkpointRepository::save,   //put the job back where the other tests left it
+                () -> checkpointRepository.deleteById(OverdueLoanScanner.JOB));
+    }
+
+    @Test
+    void scan_publishesEveryNewlyOverdueLoanOnce() {
+        Long first = loan(base.plusDays(1), false);
+        Long second = loan(base.plusDays(2), false);
+        Long third = loan(base.plusDays(2), false);
+        loan(base.plusDays(1), true);             //returned
+        Long later = loan(base.plusDays(10), false);
+
+        scanner.scan(base.plusDays(3));
+        assertThat(overdueIds()).containsExactly(first, second, third);
+
+        scanner.scan(base.plusDays(3));
+        assertThat(overdueIds()).as("a second run finds nothing new").containsExactly(first, second, third);
+
+        scanner.scan(base.plusDays(11));
+        assertThat(overdueIds()).containsExactly(first, second, third, later);
+    }
+
+    @Test
+    void scan_keepsItsPositionInTheCheckpoint() {
+        Long loan = loan(base.plusDays(1), false);
+
+        scanner.scan(base.plusDays(2));
+
+        JobCheckpoint checkpoint = checkpointRepository.findById(OverdueLoanScanner.JOB).orElseThrow();
+        assertThat(checkpoint.getLastDate()).isEqualTo(base.plusDays(1));
+        assertThat(checkpoint.getLastId()).isEqualTo(loan);
+    }
+
+    //the loans of this test only, in the order they were published
+    private List<Long> overdueIds() {
+        return events.stream(LoanOverdueEvent.class)
+                .map(LoanOverdueEvent::loanId)
+                .filter(loanIds::contains)
+                .toList();
+    }
+
+    private Long loan(LocalDate dueDate, boolean returned) {
+        User user = userRepository.findById(1002L).orElseThrow();
+        Loan loan = new Loan(null, bookRepository.findById(3L).orElseThrow(), user, dueDate.minusDays(14), null, returned);
+        loan.setDueDate(dueDate);
+        Long id = loanRepository.save(loan).getId();
+        loanIds.add(id);
+        return id;
+    }
+}
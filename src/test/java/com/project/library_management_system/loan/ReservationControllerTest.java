@@ -0,0 +1,113 @@
+package com.project.library_management_system.loan;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.security.CustomUserDetailsService;
+import com.project.library_management_system.security.SecurityConfig;
+import com.project.library_management_system.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReservationController.class)
+@Import(SecurityConfig.class)
+public class ReservationControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    ReservationRepository reservationRepository;
+
+    @MockitoBean
+    ReservationService reservationService;
+
+    @MockitoBean
+    CustomUserDetailsService customUserDetailsService;
+
+    private ReservationView mockView;
+
+    @BeforeEach
+    void setUp() {
+        mockView = new ReservationView(7L, 200L, 100L, 2, Instant.now(), "alice@example.com");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void reserve_shouldReturnCreatedWithThePosition() throws Exception {
+        User alice = new User();
+        alice.setId(100L);
+        Book book = new Book();
+        book.setId(200L);
+        when(reservationService.join(100L, 200L)).thenReturn(new Reservation(book, alice, 3));
+
+        mockMvc.perform(post("/api/reservations")
+                        .with(csrf())
+                        .param("userId", "100")
+                        .param("bookId", "200"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.bookId").value(200))
+                .andExpect(jsonPath("$.position").value(3));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@example.com", roles = "USER")
+    void findById_shouldReturnThePosition_WhenUserIsOwner() throws Exception {
+        when(reservationRepository.findViewById(7L)).thenReturn(Optional.of(mockView));
+
+        mockMvc.perform(get("/api/reservations/{id}", 7L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position").value(2))
+                .andExpect(jsonPath("$.userEmail").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "bob@example.com", roles = "USER")
+    void findById_shouldReturn403_WhenUserIsNotOwner() throws Exception {
+        when(reservationRepository.findViewById(7L)).thenReturn(Optional.of(mockView));
+
+        mockMvc.perform(get("/api/reservations/{id}", 7L))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findByBookId_shouldReturnTheQueue() throws Exception {
+        when(reservationRepository.findViewsByBookId(200L)).thenReturn(List.of(mockView));
+
+        mockMvc.perform(get("/api/reservations/by-bookId").param("id", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void findByBookId_shouldReturn403_whenUser() throws Exception {
+        mockMvc.perform(get("/api/reservations/by-bookId").param("id", "200"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void cancel_shouldReturnNoContent() throws Exception {
+        mockMvc.perform(delete("/api/reservations/{id}", 7L)
+                        .with(csrf()))
+                .andExpect(status().isNoContent());
+
+        verify(reservationService, times(1)).cancel(7L);
+    }
+}
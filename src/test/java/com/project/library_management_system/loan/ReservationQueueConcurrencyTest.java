@@ -0,0 +1,168 @@
+package com.project.library_management_system.loan;
+
+import com.project.library_management_system.book.Book;
+import com.project.library_management_system.book.BookRepository;
+import com.project.library_management_system.exception.ConflictException;
+import com.project.library_management_system.user.Role;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// one thread per patron borrows, queues for, gives back and cancels on a few shared books at random.
+// afterwards every book is either on the shelf with nobody waiting or on loan to one patron with a dense queue,
+// and giving the books back until the queues are empty lends each one to its queue in order
+@SpringBootTest
+public class ReservationQueueConcurrencyTest {
+
+    private static final int PATRONS = 12;
+    private static final int BOOKS = 4;
+    private static final int ROUNDS = 40;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Long> bookIds = new ArrayList<>();
+    private final List<Long> patronIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for(int i = 0; i < BOOKS; i++){
+            bookIds.add(bookRepository.save(new Book(null, "Waitlisted " + i, "Author", "queue-" + i, true, null)).getId());
+        }
+        for(int i = 0; i < PATRONS; i++){
+            patronIds.add(userRepository.save(new User(null, "Patron " + i, "patron-" + i + "@queue.test", null,
+                    Role.USER, true, null)).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookIds.forEach(bookId -> reservationRepository.findViewsByBookId(bookId)
+                .forEach(reservation -> reservationService.cancel(reservation.id())));
+        bookIds.forEach(bookId -> loanRepository.findLatestViewsByBookId(bookId, Limit.unlimited())
+                .forEach(loan -> loanService.delete(loan.id())));
+        bookRepository.deleteAllById(bookIds);
+        userRepository.deleteAllById(patronIds);
+    }
+
+    @Test
+    void racingReservesAndReturns_keepEveryQueueConsistent() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(PATRONS);
+        List<Future<?>> workers = new ArrayList<>();
+        for(Long patronId : patronIds){
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for(int round = 0; round < ROUNDS; round++){
+                    Long bookId = bookIds.get(random.nextInt(BOOKS));
+                    Optional<LoanView> held = activeLoan(bookId).filter(loan -> loan.userId().equals(patronId));
+                    if(held.isPresent()){
+                        giveBack(held.get());
+                        continue;
+                    }
+                    if(random.nextInt(5) == 0){
+                        reservationRepository.findViewsByUserId(patronId).stream().findAny()
+                                .ifPresent(reservation -> reservationService.cancel(reservation.id()));
+                        continue;
+                    }
+                    try{
+                        loanService.checkout(patronId, bookId);
+                    }catch(ConflictException onLoan){
+                        try{
+                            reservationService.join(patronId, bookId);
+                        }catch(ConflictException e){
+                            //back on the shelf meanwhile, already waiting, or lent to us
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for(Future<?> worker : workers){
+            worker.get(60, TimeUnit.SECONDS);   //rethrows anything other than a conflict
+        }
+        pool.shutdown();
+
+        for(Long bookId : bookIds){
+            assertConsistent(bookId);
+        }
+
+        //drain: every return lends the book to the head of its queue, in the order they queued
+        for(Long bookId : bookIds){
+            List<Long> waiting = reservationRepository.findViewsByBookId(bookId).stream()
+                    .map(ReservationView::userId)
+                    .toList();
+            for(Long next : waiting){
+                giveBack(activeLoan(bookId).orElseThrow());
+                assertThat(activeLoan(bookId)).get().extracting(LoanView::userId).isEqualTo(next);
+                assertConsistent(bookId);
+            }
+            activeLoan(bookId).ifPresent(this::giveBack);
+            assertThat(bookRepository.findById(bookId).orElseThrow().isAvailable()).isTrue();
+        }
+    }
+
+    private void assertConsistent(Long bookId) {
+        List<LoanView> active = loanRepository.findLatestViewsByBookId(bookId, Limit.unlimited()).stream()
+                .filter(loan -> !loan.returned())
+                .toList();
+        List<ReservationView> queue = reservationRepository.findViewsByBookId(bookId);
+        boolean available = bookRepository.findById(bookId).orElseThrow().isAvailable();
+
+        assertThat(active).as("active loans of book %d", bookId).hasSizeLessThanOrEqualTo(1);
+        assertThat(available).as("book %d is on the shelf exactly when nobody has it", bookId).isEqualTo(active.isEmpty());
+        assertThat(queue).extracting(ReservationView::position).as("queue of book %d", bookId)
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, queue.size()).boxed().toList());
+        if(!queue.isEmpty()){
+            assertThat(active).as("book %d has a queue, it is on loan", bookId).hasSize(1);
+            assertThat(queue).extracting(ReservationView::userId).doesNotContain(active.get(0).userId());
+        }
+    }
+
+    private Optional<LoanView> activeLoan(Long bookId) {
+        return loanRepository.findLatestViewsByBookId(bookId, Limit.of(1)).stream()
+                .filter(loan -> !loan.returned())
+                .findFirst();
+    }
+
+    private void giveBack(LoanView loan) {
+        loanService.update(loan.id(), new Loan(null, null, null, loan.loanDate(), LocalDate.now(), true));
+    }
+}
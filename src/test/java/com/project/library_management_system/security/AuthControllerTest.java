@@ -1,6 +1,7 @@
 package com.project.library_management_system.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.library_management_system.exception.UnauthorizedException;
 import com.project.library_management_system.user.Role;
 import com.project.library_management_system.user.User;
 import com.project.library_management_system.user.UserRepository;
@@ -17,11 +18,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.Instant;
 import java.util.Collections;
@@ -29,13 +30,15 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AuthController.class)
-@Import(SecurityConfig.class) // Import your security configuration
+@Import({SecurityConfig.class, PasswordHashingExecutor.class}) // Import your security configuration and the hashing pool
 public class AuthControllerTest {
 
     @Autowired
@@ -58,9 +61,12 @@ public class AuthControllerTest {
     @MockitoBean
     private PasswordEncoder passwordEncoder;
 
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+
     // --- Mocks required for SecurityConfig to load ---
     @MockitoBean
-    private JwtDecoder jwtDecoder;
+    private CachingJwtDecoder jwtDecoder;
 
     @MockitoBean
     private CustomUserDetailsService customUserDetailsService;
@@ -86,14 +92,21 @@ public class AuthControllerTest {
         Jwt mockJwt = mock(Jwt.class);
         when(mockJwt.getTokenValue()).thenReturn("fake-jwt-token-string");
         when(jwtEncoder.encode(any(JwtEncoderParameters.class))).thenReturn(mockJwt);
+        when(refreshTokenService.issue("admin@example.com")).thenReturn("fake-refresh-token");
 
         // Act & Assert
-        mockMvc.perform(post("/auth/login")
+        // the controller answers asynchronously, from the hashing pool
+        MvcResult result = mockMvc.perform(post("/auth/login")
                         .with(csrf())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.token").value("fake-jwt-token-string")); // Assuming JwtResponse has a 'token' field
+                .andExpect(jsonPath("$.token").value("fake-jwt-token-string")) // Assuming JwtResponse has a 'token' field
+                .andExpect(jsonPath("$.refreshToken").value("fake-refresh-token"));
     }
 
     @Test
@@ -108,14 +121,90 @@ public class AuthControllerTest {
                 .thenThrow(new BadCredentialsException("Bad credentials"));
 
         // Act & Assert
-        mockMvc.perform(post("/auth/login")
+        // the controller answers asynchronously, from the hashing pool
+        MvcResult result = mockMvc.perform(post("/auth/login")
                         .with(csrf())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized());
+    }
+
+    // --- 2. REFRESH TESTS ---
+
+    @Test
+    void refresh_shouldReturnNewTokens_WithoutCheckingThePassword() throws Exception {
+        User user = new User(7L, "Admin", "admin@example.com", "hash", Role.ADMIN, true, null);
+        when(refreshTokenService.rotate("old-refresh-token"))
+                .thenReturn(new RefreshTokenService.Rotation(user, "new-refresh-token"));
+
+        Jwt mockJwt = mock(Jwt.class);
+        when(mockJwt.getTokenValue()).thenReturn("fake-jwt-token-string");
+        when(jwtEncoder.encode(any(JwtEncoderParameters.class))).thenReturn(mockJwt);
+
+        RefreshRequest refreshRequest = new RefreshRequest();
+        refreshRequest.setRefreshToken("old-refresh-token");
+
+        mockMvc.perform(post("/auth/refresh")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("fake-jwt-token-string"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh-token"));
+
+        verify(jwtEncoder).encode(argThat((JwtEncoderParameters parameters) ->
+                "ROLE_ADMIN".equals(parameters.getClaims().getClaim("scope"))
+                && "admin@example.com".equals(parameters.getClaims().getSubject())));
+        verifyNoInteractions(authenticationManager, passwordEncoder);
+    }
+
+    @Test
+    void refresh_shouldReturn401_WhenTokenIsRejected() throws Exception {
+        when(refreshTokenService.rotate("replayed-token"))
+                .thenThrow(new UnauthorizedException("Refresh token is invalid or expired"));
+
+        RefreshRequest refreshRequest = new RefreshRequest();
+        refreshRequest.setRefreshToken("replayed-token");
+
+        mockMvc.perform(post("/auth/refresh")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
                 .andExpect(status().isUnauthorized());
+
+        verify(jwtEncoder, never()).encode(any());
     }
 
-    // --- 2. REGISTER TESTS ---
+    @Test
+    void refresh_shouldReturn400_WhenTokenIsMissing() throws Exception {
+        mockMvc.perform(post("/auth/refresh")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(refreshTokenService);
+    }
+
+    @Test
+    void logout_shouldRevokeTheTokenFamily() throws Exception {
+        RefreshRequest refreshRequest = new RefreshRequest();
+        refreshRequest.setRefreshToken("some-refresh-token");
+
+        mockMvc.perform(post("/auth/logout")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isNoContent());
+
+        verify(refreshTokenService).revoke("some-refresh-token");
+    }
+
+    // --- 3. REGISTER TESTS ---
 
     @Test
     void register_shouldReturn201_WhenEmailIsNew() throws Exception {
@@ -135,10 +224,15 @@ public class AuthControllerTest {
         when(userRepository.save(any(User.class))).thenReturn(new User());
 
         // Act & Assert
-        mockMvc.perform(post("/auth/register")
+        // the controller answers asynchronously, from the hashing pool
+        MvcResult result = mockMvc.perform(post("/auth/register")
                         .with(csrf())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(registerRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(content().string("User registered. Awaiting approval."));
 
@@ -157,10 +251,15 @@ public class AuthControllerTest {
         when(userRepository.findByEmail("existing@example.com")).thenReturn(Optional.of(new User()));
 
         // Act & Assert
-        mockMvc.perform(post("/auth/register")
+        // the controller answers asynchronously, from the hashing pool
+        MvcResult result = mockMvc.perform(post("/auth/register")
                         .with(csrf())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(registerRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Email already exists"));
 
@@ -0,0 +1,106 @@
+package com.project.library_management_system.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class CachingJwtDecoderTest {
+
+    private JwtDecoder nimbus;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        nimbus = mock(JwtDecoder.class);
+        decoder = new CachingJwtDecoder(nimbus, Duration.ofMinutes(30), 100);
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("admin@example.com")
+                .claim("scope", "ROLE_ADMIN ROLE_USER")
+                .issuedAt(Instant.now().minusSeconds(10))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void decode_verifiesEachTokenOnlyOnce() {
+        when(nimbus.decode("token-a")).thenReturn(jwt("token-a", Instant.now().plusSeconds(1800)));
+
+        Jwt first = decoder.decode("token-a");
+        Jwt second = decoder.decode("token-a");
+
+        assertThat(second).isSameAs(first);
+        verify(nimbus, times(1)).decode("token-a");
+    }
+
+    @Test
+    void authorities_areBuiltOncePerToken() {
+        when(nimbus.decode("token-a")).thenReturn(jwt("token-a", Instant.now().plusSeconds(1800)));
+
+        Collection<GrantedAuthority> first = decoder.authorities(decoder.decode("token-a"));
+        Collection<GrantedAuthority> second = decoder.authorities(decoder.decode("token-a"));
+
+        assertThat(first).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN", "ROLE_USER");
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void authorities_doNotDependOnTheThreadThatDecoded() throws Exception {
+        when(nimbus.decode("token-a")).thenReturn(jwt("token-a", Instant.now().plusSeconds(1800)));
+        Jwt decoded = decoder.decode("token-a");
+        Collection<GrantedAuthority> first = decoder.authorities(decoded);
+
+        AtomicReference<Collection<GrantedAuthority>> elsewhere = new AtomicReference<>();
+        Thread other = new Thread(() -> elsewhere.set(decoder.authorities(decoded)));
+        other.start();
+        other.join();
+
+        assertThat(elsewhere.get()).isSameAs(first);
+    }
+
+    @Test
+    void authorities_ofAJwtFromElsewhereAreParsed() {
+        Jwt other = jwt("token-b", Instant.now().plusSeconds(60));
+
+        assertThat(decoder.authorities(other)).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN", "ROLE_USER");
+    }
+
+    @Test
+    void decode_doesNotServeExpiredTokens() {
+        when(nimbus.decode("token-a"))
+                .thenReturn(jwt("token-a", Instant.now().minusSeconds(1)))
+                .thenThrow(new BadJwtException("Jwt expired"));
+
+        decoder.decode("token-a");
+
+        assertThatThrownBy(() -> decoder.decode("token-a")).isInstanceOf(BadJwtException.class);
+        verify(nimbus, times(2)).decode("token-a");
+    }
+
+    @Test
+    void decode_doesNotCacheInvalidTokens() {
+        when(nimbus.decode("forged")).thenThrow(new BadJwtException("Invalid signature"));
+
+        assertThatThrownBy(() -> decoder.decode("forged")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("forged")).isInstanceOf(BadJwtException.class);
+
+        verify(nimbus, times(2)).decode("forged");
+        assertThat(decoder.size()).isZero();
+    }
+}
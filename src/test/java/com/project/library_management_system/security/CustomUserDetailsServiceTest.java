@@ -0,0 +1,81 @@
+package com.project.library_management_system.security;
+
+import com.project.library_management_system.user.Role;
+import com.project.library_management_system.user.User;
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class CustomUserDetailsServiceTest {
+
+    private UserRepository userRepository;
+    private CustomUserDetailsService service;
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        service = new CustomUserDetailsService(userRepository, Duration.ofMinutes(5), 100);
+        alice = new User(1L, "Alice", "alice@example.com", "$2a$10$hash", Role.USER, true, new ArrayList<>());
+    }
+
+    @Test
+    void loadUserByUsername_shouldHitDatabaseOnce_forRepeatedLogins() {
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(alice));
+
+        service.loadUserByUsername("alice@example.com");
+        service.loadUserByUsername("alice@example.com");
+        UserDetails details = service.loadUserByUsername("alice@example.com");
+
+        assertThat(details.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+        verify(userRepository, times(1)).findByEmail("alice@example.com");
+    }
+
+    @Test
+    void loadUserByUsername_shouldKeepPassword_whenPreviousPrincipalWasErased() {
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(alice));
+
+        // the authentication manager erases credentials after a successful login
+        ((CredentialsContainer) service.loadUserByUsername("alice@example.com")).eraseCredentials();
+
+        assertThat(service.loadUserByUsername("alice@example.com").getPassword()).isEqualTo("$2a$10$hash");
+    }
+
+    @Test
+    void evict_shouldPickUpRevokedApproval() {
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(alice));
+        service.loadUserByUsername("alice@example.com");
+
+        alice.setApproved(false);
+        service.evict("alice@example.com");
+
+        assertThatThrownBy(() -> service.loadUserByUsername("alice@example.com"))
+                .isInstanceOf(DisabledException.class);
+    }
+
+    @Test
+    void loadUserByUsername_shouldNotCacheUnknownEmails() {
+        when(userRepository.findByEmail("new@example.com")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.loadUserByUsername("new@example.com"))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        // registered in the meantime
+        when(userRepository.findByEmail("new@example.com")).thenReturn(Optional.of(
+                new User(2L, "New", "new@example.com", "$2a$10$other", Role.USER, true, new ArrayList<>())));
+
+        assertThat(service.loadUserByUsername("new@example.com").getUsername()).isEqualTo("new@example.com");
+    }
+}
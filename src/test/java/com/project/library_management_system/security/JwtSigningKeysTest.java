@@ -0,0 +1,137 @@
+package com.project.library_management_system.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JwtSigningKeysTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @TempDir
+    Path dir;
+
+    private static JwtEncoderParameters claims() {
+        return JwtEncoderParameters.from(JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(1800))
+                .subject("admin@example.com")
+                .claim("scope", "ROLE_ADMIN")
+                .build());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RS256", "ES256", "HS256"})
+    void generatedKeys_signAndVerify(String algorithm) {
+        JwtSigningKeys keys = JwtSigningKeys.generate(JWSAlgorithm.parse(algorithm));
+
+        String token = keys.encoder().encode(claims()).getTokenValue();
+        Jwt jwt = keys.decoder().decode(token);
+
+        assertThat(jwt.getSubject()).isEqualTo("admin@example.com");
+        assertThat(jwt.getHeaders()).containsEntry("alg", algorithm).containsEntry("kid", keys.signingKeyId());
+    }
+
+    @Test
+    void tokensOfAnotherKeyAreRejected() {
+        String token = JwtSigningKeys.generate(JWSAlgorithm.ES256).encoder().encode(claims()).getTokenValue();
+
+        assertThatThrownBy(() -> JwtSigningKeys.generate(JWSAlgorithm.ES256).decoder().decode(token))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void unsupportedAlgorithmsFailAtStartup() {
+        assertThatThrownBy(() -> JwtSigningKeys.generate(JWSAlgorithm.EdDSA))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void keystore_rotation_oldTokensStayValidWhileTheNewKeySigns() throws Exception {
+        Path keystore = writeHmacKeystore("2025-01", "2025-02");
+
+        JwtSigningKeys before = JwtSigningKeys.load(keystore, PASSWORD, JWSAlgorithm.HS256, "2025-01");
+        String oldToken = before.encoder().encode(claims()).getTokenValue();
+
+        JwtSigningKeys after = JwtSigningKeys.load(keystore, PASSWORD, JWSAlgorithm.HS256, "");  //latest alias signs
+        String newToken = after.encoder().encode(claims()).getTokenValue();
+
+        assertThat(after.signingKeyId()).isEqualTo("2025-02");
+        assertThat(after.size()).isEqualTo(2);
+        assertThat(after.decoder().decode(oldToken).getHeaders()).containsEntry("kid", "2025-01");
+        assertThat(after.decoder().decode(newToken).getHeaders()).containsEntry("kid", "2025-02");
+    }
+
+    @Test
+    void keystore_droppedKeysNoLongerVerify() throws Exception {
+        String oldToken = JwtSigningKeys.load(writeHmacKeystore("2025-01"), PASSWORD, JWSAlgorithm.HS256, "")
+                .encoder().encode(claims()).getTokenValue();
+
+        JwtSigningKeys rotated = JwtSigningKeys.load(writeHmacKeystore("2025-02"), PASSWORD, JWSAlgorithm.HS256, "");
+
+        assertThatThrownBy(() -> rotated.decoder().decode(oldToken)).isInstanceOf(BadJwtException.class);
+    }
+
+    @Test
+    void keystore_activeKeyMustFitTheAlgorithm() throws Exception {
+        Path keystore = writeHmacKeystore("2025-01");
+
+        assertThatThrownBy(() -> JwtSigningKeys.load(keystore, PASSWORD, JWSAlgorithm.ES256, "2025-01"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> JwtSigningKeys.load(keystore, PASSWORD, JWSAlgorithm.HS256, "missing"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void keystore_ecKeysFromKeytool() throws Exception {
+        Path keystore = dir.resolve("ec.p12");
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-keyalg", "EC", "-groupname", "secp256r1", "-alias", "ec-1",
+                "-dname", "CN=library", "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        assertThat(keytool.waitFor()).isZero();
+
+        JwtSigningKeys keys = JwtSigningKeys.load(keystore, PASSWORD, JWSAlgorithm.ES256, "");
+        String token = keys.encoder().encode(claims()).getTokenValue();
+
+        assertThat(keys.signingKeyId()).isEqualTo("ec-1");
+        assertThat(keys.decoder().decode(token).getHeaders()).containsEntry("alg", "ES256");
+    }
+
+    private Path writeHmacKeystore(String... aliases) throws Exception {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        store.load(null, PASSWORD);
+        KeyGenerator generator = KeyGenerator.getInstance("HmacSHA256");
+        generator.init(256);
+        for (String alias : aliases) {
+            SecretKey key = generator.generateKey();
+            store.setEntry(alias, new KeyStore.SecretKeyEntry(key), new KeyStore.PasswordProtection(PASSWORD));
+        }
+        Path file = Files.createTempFile(dir, "jwt", ".p12");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            store.store(out, PASSWORD);
+        }
+        return file;
+    }
+}
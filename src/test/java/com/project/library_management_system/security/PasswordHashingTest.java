@@ -0,0 +1,70 @@
+package com.project.library_management_system.security;
+
+import com.project.library_management_system.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PasswordHashingTest {
+
+    @Test
+    void submit_shouldRejectWithTooManyRequests_whenPoolAndQueueAreFull() throws Exception {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = executor.submit(() -> await(release));
+            CompletableFuture<String> queued = executor.submit(() -> await(release));
+
+            assertThatThrownBy(() -> executor.submit(() -> "third"))
+                    .isInstanceOf(TooManyRequestsException.class);
+
+            release.countDown();
+            assertThat(running.get()).isEqualTo("done");
+            assertThat(queued.get()).isEqualTo("done");
+        } finally {
+            release.countDown();
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void calibrate_shouldStayWithinBounds() {
+        assertThat(BCryptCostCalibrator.calibrate(Duration.ZERO, 4, 12)).isEqualTo(4);
+        assertThat(BCryptCostCalibrator.calibrate(Duration.ofDays(1), 4, 6)).isEqualTo(6);
+    }
+
+    @Test
+    void delegatingEncoder_shouldAskForUpgrade_whenPrefixOrCostDiffers() {
+        CostAwareBCryptPasswordEncoder bcrypt = new CostAwareBCryptPasswordEncoder(5);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");  // old style: no prefix
+        String otherCost = "{bcrypt}" + new BCryptPasswordEncoder(6).encode("secret");
+        String current = encoder.encode("secret");
+
+        assertThat(encoder.matches("secret", legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(otherCost)).isTrue();  // higher cost is brought down as well
+        assertThat(current).startsWith("{bcrypt}$2a$05$");
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
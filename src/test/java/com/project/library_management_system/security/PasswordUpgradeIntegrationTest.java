@@ -0,0 +1,49 @@
+package com.project.library_management_system.security;
+
+import com.project.library_management_system.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "security.password.min-cost=4",
+        "security.password.max-cost=4"
+})
+@AutoConfigureMockMvc
+@DirtiesContext  // the seeded password hash is rewritten
+public class PasswordUpgradeIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Test
+    void login_shouldRehashLegacyPassword_withCurrentCostAndPrefix() throws Exception {
+        // seeded in data.sql as an unprefixed $2y$10$ hash
+        assertThat(userRepository.findByEmail("johndoe@example.com").orElseThrow().getPassword()).startsWith("$2y$10$");
+
+        MvcResult result = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"johndoe@example.com\",\"password\":\"password123\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").isNotEmpty());
+
+        assertThat(userRepository.findByEmail("johndoe@example.com").orElseThrow().getPassword()).startsWith("{bcrypt}$2a$04$");
+    }
+}
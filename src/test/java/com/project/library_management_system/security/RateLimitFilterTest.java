@@ -0,0 +1,202 @@
+package com.project.library_management_system.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitFilterTest {
+
+    private static final RateLimitProperties.Route LOGIN_BY_IP = new RateLimitProperties.Route(
+            "/auth/login", "POST", 3, Duration.ofMinutes(1), Set.of(RateLimitProperties.Key.IP));
+    private static final RateLimitProperties.Route LOGIN_BY_EMAIL = new RateLimitProperties.Route(
+            "/auth/login", "POST", 2, Duration.ofMinutes(1), Set.of(RateLimitProperties.Key.EMAIL));
+
+    private RateLimiter limiter(int maxConcurrent, Map<String, RateLimitProperties.Route> routes) {
+        return new RateLimiter(new RateLimitProperties(true, maxConcurrent, 1000, Duration.ofMinutes(10), routes));
+    }
+
+    private MockHttpServletRequest login(String ip, String email) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(("{\"password\":\"secret\",\"email\":\"" + email + "\"}").getBytes());
+        return request;
+    }
+
+    private MockHttpServletResponse perform(RateLimitFilter filter, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void clientOverItsRouteLimit_gets429WithRetryAfter() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(limiter(0, Map.of("login-ip", LOGIN_BY_IP)));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(perform(filter, login("10.0.0.1", "user" + i + "@example.com")).getStatus()).isEqualTo(200);
+        }
+        MockHttpServletResponse limited = perform(filter, login("10.0.0.1", "other@example.com"));
+
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(limited.getHeader("Retry-After"))).isBetween(1L, 60L);
+        //another client still has its whole bucket
+        assertThat(perform(filter, login("10.0.0.2", "other@example.com")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void emailKey_limitsOneAccountAcrossAddresses_andTheBodyStillReachesTheController() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(limiter(0, Map.of("login-email", LOGIN_BY_EMAIL)));
+        AtomicReference<String> seenBody = new AtomicReference<>();
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(login("10.0.0.1", "Victim@Example.com"), first,
+                (request, response) -> seenBody.set(new String(request.getInputStream().readAllBytes())));
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(seenBody.get()).contains("\"email\":\"Victim@Example.com\"");
+        assertThat(perform(filter, login("10.0.0.2", "victim@example.com")).getStatus()).isEqualTo(200);
+        assertThat(perform(filter, login("10.0.0.3", "VICTIM@example.com")).getStatus()).isEqualTo(429);
+        assertThat(perform(filter, login("10.0.0.3", "someone@example.com")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void requestsOutsideTheConfiguredRoutes_areNotLimited() throws Exception {
+        Map<String, RateLimitProperties.Route> routes = new LinkedHashMap<>();
+        routes.put("login-ip", LOGIN_BY_IP);
+        RateLimitFilter filter = new RateLimitFilter(limiter(0, routes));
+
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest books = new MockHttpServletRequest("GET", "/api/books");
+            books.setRemoteAddr("10.0.0.1");
+            assertThat(perform(filter, books).getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void serverAtItsConcurrencyCap_shedsWith503_andRecoversWhenASlotFrees() throws Exception {
+        RateLimiter limiter = limiter(1, Map.of());
+        RateLimitFilter filter = new RateLimitFilter(limiter);
+
+        assertThat(limiter.tryEnter()).isTrue();   //a request still being processed
+        MockHttpServletResponse shed = perform(filter, new MockHttpServletRequest("GET", "/api/books"));
+        assertThat(shed.getStatus()).isEqualTo(503);
+        assertThat(shed.getHeader("Retry-After")).isEqualTo("1");
+
+        limiter.exit();
+        assertThat(perform(filter, new MockHttpServletRequest("GET", "/api/books")).getStatus()).isEqualTo(200);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void asyncRequest_holdsItsSlotUntilTheResponseIsComplete() throws Exception {
+        RateLimiter limiter = limiter(1, Map.of());
+        RateLimitFilter filter = new RateLimitFilter(limiter);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertThat(limiter.inFlight()).isEqualTo(1);
+        request.getAsyncContext().complete();
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void emailKey_replaysTheBodyToANonBlockingReader() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(limiter(0, Map.of("login-email", LOGIN_BY_EMAIL)));
+        AtomicReference<ReadListener> container = new AtomicReference<>();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login") {
+            private final ServletInputStream body = new ServletInputStream() {
+                private final ByteArrayInputStream bytes = new ByteArrayInputStream(
+                        "{\"email\":\"async@example.com\",\"password\":\"secret\"}".getBytes(StandardCharsets.UTF_8));
+
+                @Override
+                public int read() {
+                    return bytes.read();
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return bytes.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    container.set(listener);
+                }
+            };
+
+            @Override
+            public ServletInputStream getInputStream() {
+                return body;
+            }
+        };
+        request.setContentType("application/json");
+        ByteArrayOutputStream seen = new ByteArrayOutputStream();
+        AtomicBoolean allRead = new AtomicBoolean();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[8];
+                    int n;
+                    while(in.isReady() && (n = in.read(buffer)) != -1){
+                        seen.write(buffer, 0, n);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+            });
+        });
+        //the whole body was buffered, the container only signals its end
+        container.get().onAllDataRead();
+
+        assertThat(allRead).isTrue();
+        assertThat(seen.toString(StandardCharsets.UTF_8)).isEqualTo("{\"email\":\"async@example.com\",\"password\":\"secret\"}");
+    }
+
+    @Test
+    void tokenBucket_refillsEvenlyOverThePeriod() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2));
+        long now = 0;
+
+        assertThat(bucket.tryConsume(now)).isZero();
+        assertThat(bucket.tryConsume(now)).isZero();
+        assertThat(bucket.tryConsume(now)).isEqualTo(Duration.ofSeconds(1).toNanos());
+        //one token per second comes back
+        assertThat(bucket.tryConsume(now + Duration.ofSeconds(1).toNanos())).isZero();
+        assertThat(bucket.tryConsume(now + Duration.ofSeconds(1).toNanos())).isPositive();
+    }
+}
@@ -0,0 +1,144 @@
+package com.project.library_management_system.security;
+
+import com.project.library_management_system.exception.UnauthorizedException;
+import com.project.library_management_system.user.Role;
+import com.project.library_management_system.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import(RefreshTokenService.class)
+@TestPropertySource(properties = "security.refresh-token.ttl=1h")
+public class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        alice = entityManager.persist(new User(null, "Alice Smith", "alice@example.com", "hash", Role.USER, true, new ArrayList<>()));
+    }
+
+    @Test
+    void issue_storesOnlyTheDigestOfTheToken() {
+        String token = refreshTokenService.issue("alice@example.com");
+
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(RefreshTokenService.hash(token)).orElseThrow();
+        assertThat(stored.getTokenHash()).isNotEqualTo(token);
+        assertThat(stored.getUser().getId()).isEqualTo(alice.getId());
+        assertThat(stored.getExpiresAt()).isAfter(Instant.now().plusSeconds(3500));
+    }
+
+    @Test
+    void rotate_returnsANewTokenOfTheSameFamilyAndUsesUpTheOldOne() {
+        String first = refreshTokenService.issue("alice@example.com");
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first);
+        refresh();
+
+        assertThat(rotation.user().getEmail()).isEqualTo("alice@example.com");
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        RefreshToken old = stored(first);
+        RefreshToken next = stored(rotation.refreshToken());
+        assertThat(old.isUsed()).isTrue();
+        assertThat(next.isUsed()).isFalse();
+        assertThat(next.getFamily()).isEqualTo(old.getFamily());
+    }
+
+    @Test
+    void rotate_ofAUsedTokenRevokesTheWholeFamily() {
+        String first = refreshTokenService.issue("alice@example.com");
+        String second = refreshTokenService.rotate(first).refreshToken();
+
+        //the old token shows up again, e.g. it was stolen
+        assertThatThrownBy(() -> refreshTokenService.rotate(first))
+            .isInstanceOf(UnauthorizedException.class);
+        refresh();
+
+        assertThat(stored(second).isRevoked()).isTrue();
+        //the legitimate client is logged out as well
+        assertThatThrownBy(() -> refreshTokenService.rotate(second))
+            .isInstanceOf(UnauthorizedException.class);
+    }
+
+    @Test
+    void rotate_rejectsUnknownAndExpiredTokens() {
+        entityManager.persist(new RefreshToken(RefreshTokenService.hash("expired"), alice, UUID.randomUUID(),
+            Instant.now().minusSeconds(1)));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate("unknown"))
+            .isInstanceOf(UnauthorizedException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate("expired"))
+            .isInstanceOf(UnauthorizedException.class);
+    }
+
+    @Test
+    void rotate_rejectsAUserWhoseApprovalWasWithdrawn() {
+        String token = refreshTokenService.issue("alice@example.com");
+        alice.setApproved(false);
+        entityManager.flush();
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(token))
+            .isInstanceOf(UnauthorizedException.class);
+        refresh();
+        assertThat(stored(token).isRevoked()).isTrue();
+    }
+
+    @Test
+    void revokeAll_endsEverySessionOfTheUserOnly() {
+        String phone = refreshTokenService.issue("alice@example.com");
+        String laptop = refreshTokenService.issue("alice@example.com");
+        entityManager.persist(new User(null, "Bob Jones", "bob@example.com", "hash", Role.USER, true, new ArrayList<>()));
+        String bob = refreshTokenService.issue("bob@example.com");
+
+        assertThat(refreshTokenService.revokeAll(alice.getId())).isEqualTo(2);
+        refresh();
+
+        assertThat(stored(phone).isRevoked()).isTrue();
+        assertThat(stored(laptop).isRevoked()).isTrue();
+        assertThat(stored(bob).isRevoked()).isFalse();
+    }
+
+    @Test
+    void purgeExpired_deletesOnlyExpiredTokens() {
+        String live = refreshTokenService.issue("alice@example.com");
+        entityManager.persist(new RefreshToken(RefreshTokenService.hash("expired"), alice, UUID.randomUUID(),
+            Instant.now().minusSeconds(1)));
+
+        refreshTokenService.purgeExpired();
+        refresh();
+
+        assertThat(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("expired"))).isEmpty();
+        assertThat(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash(live))).isPresent();
+    }
+
+    //bulk updates bypass the persistence context, re-read the rows from the database
+    private void refresh() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private RefreshToken stored(String token) {
+        return refreshTokenRepository.findByTokenHash(RefreshTokenService.hash(token)).orElseThrow();
+    }
+}
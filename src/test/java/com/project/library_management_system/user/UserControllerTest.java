@@ -1,6 +1,9 @@
 package com.project.library_management_system.user;
 
+import com.project.library_management_system.loan.LoanRepository;
+import com.project.library_management_system.loan.LoanView;
 import com.project.library_management_system.security.CustomUserDetailsService;
+import com.project.library_management_system.security.RefreshTokenService;
 import com.project.library_management_system.security.SecurityConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -40,9 +43,15 @@ public class UserControllerTest {
     @MockitoBean
     UserRepository  userRepository;
 
+    @MockitoBean
+    LoanRepository loanRepository;
+
     @MockitoBean
     CustomUserDetailsService customUserDetailsService;
 
+    @MockitoBean
+    RefreshTokenService refreshTokenService;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -69,10 +78,11 @@ public class UserControllerTest {
         mockUserList = Arrays.asList(mockUser, mockUser2);
     }
 
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void findAllUsers_shouldReturnList() throws Exception{
-        when(userRepository.findAll()).thenReturn(mockUserList);
+        when(userRepository.findAllViews()).thenReturn(mockUserList.stream().map(UserView::from).toList());
 
         mockMvc.perform(get("/api/users")
                     .contentType(MediaType.APPLICATION_JSON))
@@ -97,7 +107,8 @@ public class UserControllerTest {
 
         mockMvc.perform(get("/api/users/{id}", 1L))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.email", is("admin@example.com")));
+                .andExpect(jsonPath("$.email", is("admin@example.com")))
+                .andExpect(jsonPath("$.password").doesNotExist());
     }
 
     @Test
@@ -112,7 +123,7 @@ public class UserControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void findByEmail_shouldReturnUser() throws Exception {
-        when(userRepository.findByEmail("admin@example.com")).thenReturn(Optional.of(mockUser));
+        when(userRepository.findCachedByEmail("admin@example.com")).thenReturn(Optional.of(mockUser));
 
         mockMvc.perform(get("/api/users/by-email")
                         .param("email", "admin@example.com"))
@@ -124,7 +135,7 @@ public class UserControllerTest {
     @WithMockUser(roles = "ADMIN")
     void findAllByRole_shouldReturnUsers() throws Exception {
         // Assuming you fixed the infinite recursion bug in Controller!
-        when(userRepository.findAllByRole(Role.USER)).thenReturn(List.of(mockUserList.get(1)));
+        when(userRepository.findViewsByRole(Role.USER)).thenReturn(List.of(UserView.from(mockUserList.get(1))));
 
         mockMvc.perform(get("/api/users/by-role")
                         .param("role", "USER"))
@@ -133,6 +144,28 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[0].role", is("USER")));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findLoans_shouldReturnLoansOfUser() throws Exception {
+        LoanView loan = new LoanView(5L, null, null, null, false, null, 1L, "admin@example.com");
+        when(loanRepository.findViewsByUserId(1L)).thenReturn(List.of(loan));
+
+        mockMvc.perform(get("/api/users/{id}/loans", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userId", is(1)));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findLoans_shouldReturn404_WhenUserMissing() throws Exception {
+        when(loanRepository.findViewsByUserId(99L)).thenReturn(List.of());
+        when(userRepository.existsById(99L)).thenReturn(false);
+
+        mockMvc.perform(get("/api/users/{id}/loans", 99L))
+                .andExpect(status().isNotFound());
+    }
+
     // --- 2. POST / CREATE Request ---
 
     @Test
@@ -171,6 +204,10 @@ public class UserControllerTest {
 
         // Verify save was called
         verify(userRepository, times(1)).save(any(User.class));
+        // the cached login principal of the old and the new email must be dropped
+        verify(customUserDetailsService).evict("admin@example.com");
+        verify(customUserDetailsService).evict("johny_new@example.com");
+        verify(refreshTokenService).revokeAll(1L);
     }
 
     @Test
@@ -193,13 +230,37 @@ public class UserControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void deleteById_shouldReturnNoContent() throws Exception {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
+
         mockMvc.perform(delete("/api/users/{id}", 1L)
                         .with(csrf()))
                 .andExpect(status().isNoContent());
 
         verify(userRepository, times(1)).deleteById(1L);
+        verify(customUserDetailsService).evict("admin@example.com");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void revokeRefreshTokens_shouldRevokeEverySessionOfTheUser() throws Exception {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        mockMvc.perform(delete("/api/users/{id}/refresh-tokens", 1L)
+                        .with(csrf()))
+                .andExpect(status().isNoContent());
+
+        verify(refreshTokenService).revokeAll(1L);
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void revokeRefreshTokens_shouldReturn404_WhenUserMissing() throws Exception {
+        when(userRepository.existsById(99L)).thenReturn(false);
 
+        mockMvc.perform(delete("/api/users/{id}/refresh-tokens", 99L)
+                        .with(csrf()))
+                .andExpect(status().isNotFound());
 
-}
\ No newline at end of file
+        verify(refreshTokenService, never()).revokeAll(any());
+    }
+}